@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.benchmark;
+
+import in.drifted.tools.genopro.core.model.DisplayStyle;
+import in.drifted.tools.genopro.core.util.formatter.BasicAgeFormatter;
+import in.drifted.tools.genopro.core.util.formatter.DateFormatter;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.model.PedigreeLinksSelectionMode;
+import in.drifted.tools.genopro.webapp.exporter.util.FontFile;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetricsFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+class BenchmarkSupport {
+
+    private static final String RESOURCE_BUNDLE_PATH = "in/drifted/tools/genopro/webapp/exporter/resources/l10n/messages";
+
+    static final String DEFAULT_FONT_PATH = "res/OpenSans-Regular-webfont.woff";
+
+    // the metrics are read from the font file the same way as in the exporter, the installed fonts are not used
+    static TextMetricsFactory getTextMetricsFactory(String fontPath) throws IOException {
+
+        Path path = Path.of(fontPath);
+
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("Font file " + path.toAbsolutePath() + " not found, use -p fontPath=<path>");
+        }
+
+        return FontFile.load(path);
+    }
+
+    static GeneratingOptions getGeneratingOptions(TextMetricsFactory textMetricsFactory, String highlightMode) {
+
+        Locale locale = Locale.ENGLISH;
+        ResourceBundle resourceBundle = ResourceBundle.getBundle(RESOURCE_BUNDLE_PATH, locale);
+
+        Map<String, String> additionalOptionMap = new HashMap<>();
+        additionalOptionMap.put("relativeFontPath", DEFAULT_FONT_PATH);
+        additionalOptionMap.put("highlightMode", highlightMode);
+
+        return new GeneratingOptions(locale, resourceBundle, "Open Sans", textMetricsFactory,
+                DisplayStyle.DATE_OF_BIRTH_AND_DATE_OF_DEATH, getDateFormatter(), new BasicAgeFormatter(resourceBundle),
+                new HashSet<>(), false, PedigreeLinksSelectionMode.NONE, additionalOptionMap);
+    }
+
+    static DateFormatter getDateFormatter() {
+        return new DateFormatter("yyyy-MM-dd", Locale.ENGLISH, new HashMap<>());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.benchmark;
+
+import in.drifted.tools.genopro.core.model.Alignment;
+import in.drifted.tools.genopro.core.model.Border;
+import in.drifted.tools.genopro.core.model.BoundaryRect;
+import in.drifted.tools.genopro.core.model.Color;
+import in.drifted.tools.genopro.core.model.Family;
+import in.drifted.tools.genopro.core.model.FamilyLineType;
+import in.drifted.tools.genopro.core.model.Gender;
+import in.drifted.tools.genopro.core.model.GenoMap;
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.core.model.Individual;
+import in.drifted.tools.genopro.core.model.Label;
+import in.drifted.tools.genopro.core.model.LabelStyle;
+import in.drifted.tools.genopro.core.model.Name;
+import in.drifted.tools.genopro.core.model.PedigreeLink;
+import in.drifted.tools.genopro.core.model.PedigreeLinkType;
+import in.drifted.tools.genopro.core.model.Position;
+import in.drifted.tools.genopro.core.model.Rect;
+import in.drifted.tools.genopro.core.model.Size;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds deterministic synthetic genomaps laid out as a grid of generations. Consecutive individuals of a generation
+ * form a couple with the given family density and their children are taken from the same columns of the next
+ * generation.
+ */
+public class GenoMapDataGenerator {
+
+    private static final int COLUMN_WIDTH = 150;
+    private static final int ROW_HEIGHT = 120;
+    private static final int MAX_CHILDREN_COUNT = 4;
+
+    private static final String[] FIRST_NAMES = {
+        "Jan", "Josef", "František", "Václav", "Karel", "Marie", "Anna", "Rosalie", "Terezie", "Kateřina"
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Novák", "Svoboda", "Dvořák", "Černý", "Procházka", "Kučera", "Veselý", "Tošovský"
+    };
+
+    private final Random random;
+    private final double familyDensity;
+    private final int labelCount;
+
+    public GenoMapDataGenerator(long seed, double familyDensity, int labelCount) {
+        this.random = new Random(seed);
+        this.familyDensity = familyDensity;
+        this.labelCount = labelCount;
+    }
+
+    public List<GenoMapData> getGenoMapDataList(int genoMapCount, int individualCount) {
+
+        List<GenoMapData> genoMapDataList = new ArrayList<>();
+
+        for (int i = 0; i < genoMapCount; i++) {
+            genoMapDataList.add(getGenoMapData("GenoMap" + (i + 1), individualCount / genoMapCount));
+        }
+
+        return genoMapDataList;
+    }
+
+    public GenoMapData getGenoMapData(String genoMapId, int individualCount) {
+
+        int columnCount = Math.max(2, (int) Math.ceil(Math.sqrt(individualCount)));
+        int rowCount = (int) Math.ceil((double) individualCount / columnCount);
+
+        BoundaryRect genoMapBoundaryRect = new BoundaryRect(
+                new Position(-COLUMN_WIDTH, ROW_HEIGHT),
+                new Position(columnCount * COLUMN_WIDTH, -rowCount * ROW_HEIGHT));
+
+        GenoMap genoMap = new GenoMap(genoMapId, "Synthetic " + genoMapId, genoMapBoundaryRect);
+
+        Individual[][] grid = new Individual[rowCount][columnCount];
+        Set<Individual> individualSet = new LinkedHashSet<>();
+
+        for (int i = 0; i < individualCount; i++) {
+
+            int row = i / columnCount;
+            int column = i % columnCount;
+
+            Individual individual = getIndividual(genoMap, genoMapId + "-ind" + i, column % 2 == 0,
+                    new Position(column * COLUMN_WIDTH, -row * ROW_HEIGHT));
+
+            grid[row][column] = individual;
+            individualSet.add(individual);
+        }
+
+        Set<Family> familySet = new LinkedHashSet<>();
+
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column + 1 < columnCount; column += 2) {
+
+                Individual father = grid[row][column];
+                Individual mother = grid[row][column + 1];
+
+                if (father != null && mother != null && random.nextDouble() < familyDensity) {
+
+                    List<Individual> childList = new ArrayList<>();
+
+                    if (row + 1 < rowCount) {
+                        int childrenCount = random.nextInt(MAX_CHILDREN_COUNT + 1);
+                        for (int i = 0; i < childrenCount && column + i < columnCount; i++) {
+                            Individual child = grid[row + 1][column + i];
+                            if (child != null) {
+                                childList.add(child);
+                            }
+                        }
+                    }
+
+                    familySet.add(getFamily(genoMapId + "-fam" + familySet.size(), father, mother, childList));
+                }
+            }
+        }
+
+        Set<Label> labelSet = new LinkedHashSet<>();
+
+        for (int i = 0; i < labelCount; i++) {
+            labelSet.add(getLabel(i, columnCount, rowCount));
+        }
+
+        return new GenoMapData(genoMap, individualSet, familySet, labelSet);
+    }
+
+    private Individual getIndividual(GenoMap genoMap, String id, boolean male, Position position) {
+
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length) / 2 + (male ? 0 : FIRST_NAMES.length / 2)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        Name name = new Name(firstName, null, lastName, random.nextInt(10) == 0 ? lastName : null);
+
+        BoundaryRect boundaryRect = new BoundaryRect(
+                new Position(position.x() - 60, position.y() + 12),
+                new Position(position.x() + 60, position.y() - 60));
+
+        Set<String> highlightKeySet = new HashSet<>();
+        highlightKeySet.add("n/a");
+
+        return new Individual(id, genoMap, name, male ? Gender.MALE : Gender.FEMALE, null, null,
+                random.nextBoolean(), false, position, boundaryRect, null, highlightKeySet);
+    }
+
+    private Family getFamily(String id, Individual father, Individual mother, List<Individual> childList) {
+
+        Position fatherPosition = father.position();
+        Position motherPosition = mother.position();
+
+        Position position = new Position((fatherPosition.x() + motherPosition.x()) / 2, fatherPosition.y());
+        BoundaryRect topBoundaryRect = new BoundaryRect(fatherPosition, motherPosition);
+        BoundaryRect bottomBoundaryRect = null;
+
+        List<PedigreeLink> pedigreeLinkList = new ArrayList<>();
+        pedigreeLinkList.add(new PedigreeLink(father.id(), PedigreeLinkType.PARENT, fatherPosition, null));
+        pedigreeLinkList.add(new PedigreeLink(mother.id(), PedigreeLinkType.PARENT, motherPosition, null));
+
+        if (!childList.isEmpty()) {
+
+            int y = fatherPosition.y() - ROW_HEIGHT / 2;
+            int leftX = Math.min(position.x(), childList.get(0).position().x());
+            int rightX = Math.max(position.x(), childList.get(childList.size() - 1).position().x());
+
+            bottomBoundaryRect = new BoundaryRect(new Position(leftX, y), new Position(rightX, y));
+
+            for (Individual child : childList) {
+                pedigreeLinkList.add(new PedigreeLink(child.id(), PedigreeLinkType.BIOLOGICAL, child.position(), null));
+            }
+        }
+
+        String label = random.nextInt(4) == 0 ? "m. " + (1800 + random.nextInt(200)) : null;
+        FamilyLineType familyLineType = FamilyLineType.values()[random.nextInt(FamilyLineType.values().length)];
+
+        return new Family(id, father.id(), mother.id(), position, topBoundaryRect, bottomBoundaryRect,
+                pedigreeLinkList, label, familyLineType);
+    }
+
+    private Label getLabel(int index, int columnCount, int rowCount) {
+
+        int width = 100 + random.nextInt(300);
+        int height = 40 + random.nextInt(160);
+        int x = random.nextInt(columnCount * COLUMN_WIDTH);
+        int y = -random.nextInt(rowCount * ROW_HEIGHT);
+
+        Size size = Size.values()[random.nextInt(Size.values().length)];
+        LabelStyle labelStyle = new LabelStyle(Color.fromHex("#FFFFC0"), new Border(Color.fromHex("#808080"), size),
+                4, size, Alignment.CENTER, Alignment.TOP);
+
+        String text = "Label " + index + "\nThe quick brown fox jumps over the lazy dog " + LAST_NAMES[index % LAST_NAMES.length];
+
+        return new Label(text, new Rect(x, y, width, height), labelStyle);
+    }
+}
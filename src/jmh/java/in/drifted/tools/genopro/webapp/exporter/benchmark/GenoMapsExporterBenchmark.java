@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.benchmark;
+
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.webapp.exporter.GenoMapsExporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenoMapsExporterBenchmark {
+
+    @Param({"10", "150", "1000"})
+    private int genoMapCount;
+
+    private List<GenoMapData> genoMapDataList;
+    private Path outputPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        genoMapDataList = new GenoMapDataGenerator(42, 0.5, 0).getGenoMapDataList(genoMapCount, genoMapCount * 4);
+        outputPath = Files.createTempFile("genomaps", ".js");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputPath);
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        GenoMapsExporter.export(outputPath, genoMapDataList);
+    }
+}
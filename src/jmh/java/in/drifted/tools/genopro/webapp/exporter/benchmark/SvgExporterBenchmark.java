@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.benchmark;
+
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.webapp.exporter.SvgExporter;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetricsFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class SvgExporterBenchmark {
+
+    @Param({"1000", "10000", "100000", "500000"})
+    private int individualCount;
+
+    @Param({"0.5"})
+    private double familyDensity;
+
+    @Param({"100"})
+    private int labelCount;
+
+    @Param({"0", "1"})
+    private String highlightMode;
+
+    @Param({BenchmarkSupport.DEFAULT_FONT_PATH})
+    private String fontPath;
+
+    private GenoMapData genoMapData;
+    private TextMetricsFactory textMetricsFactory;
+    private GeneratingOptions generatingOptions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        genoMapData = new GenoMapDataGenerator(42, familyDensity, labelCount).getGenoMapData("GenoMap1", individualCount);
+        textMetricsFactory = BenchmarkSupport.getTextMetricsFactory(fontPath);
+    }
+
+    // the options hold the line wrap cache, so every export starts with an empty one as in a single run of the exporter
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        generatingOptions = BenchmarkSupport.getGeneratingOptions(textMetricsFactory, highlightMode);
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        SvgExporter.export(genoMapData, OutputStream.nullOutputStream(), generatingOptions);
+    }
+}
@@ -25,11 +25,26 @@ import in.drifted.tools.genopro.core.util.DocumentDataUtil;
 import in.drifted.tools.genopro.core.util.formatter.AgeFormatter;
 import in.drifted.tools.genopro.core.util.formatter.BasicAgeFormatter;
 import in.drifted.tools.genopro.core.util.formatter.DateFormatter;
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
 import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
 import in.drifted.tools.genopro.webapp.exporter.model.PedigreeLinksSelectionMode;
+import in.drifted.tools.genopro.webapp.exporter.output.CompressingOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.MemoryOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.ZipOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.AwtTextMetricsFactory;
+import in.drifted.tools.genopro.webapp.exporter.util.ExportReport;
+import in.drifted.tools.genopro.webapp.exporter.util.FontFile;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetricsFactory;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.HashMap;
@@ -39,6 +54,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.w3c.dom.Document;
 
 public class App {
@@ -57,12 +73,28 @@ public class App {
     private static final String PARAM_PEDIGREE_LINKS_SELECTION_MODE = "-pedigreeLinksSelectionMode";
     private static final String PARAM_GA_TRACKING_ID = "-gaTrackingId";
     private static final String PARAM_HIGHLIGHT_MODE = "-highlightMode";
+    private static final String PARAM_RENDER_THREADS = "-renderThreads";
+    private static final String PARAM_INCREMENTAL = "-incremental";
+    private static final String PARAM_GZIP_LEVEL = "-gzipLevel";
+    private static final String PARAM_SHARD_INDIVIDUALS = "-shardIndividuals";
+    private static final String PARAM_TILE_CAPACITY = "-tileCapacity";
+    private static final String PARAM_OVERVIEW_ZOOM = "-overviewZoom";
+    private static final String PARAM_BATCH_FAMILY_LINES = "-batchFamilyLines";
+    private static final String PARAM_EXPORT_REPORT = "-exportReport";
+    private static final String PARAM_JFR_EVENTS = "-jfrEvents";
+    private static final String PARAM_WATCH = "-watch";
+    private static final String PARAM_PORT = "-port";
 
     private static final String DEFAULT_MODE = "dynamic";
     private static final int DEFAULT_ANONYMIZED_YEARS = 100;
     private static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
     private static final String DEFAULT_FONT_FAMILY = "Open Sans";
     private static final String DEFAULT_RELATIVE_FONT_PATH = "res/OpenSans-Regular-webfont.woff";
+    private static final int DEFAULT_PORT = 8080;
+
+    private static final String EXPORT_REPORT_FILE_NAME = "export-report.json";
+
+    private static final long WATCH_DEBOUNCE_MILLIS = 500;
 
     private static final String RESOURCE_BUNDLE_PATH = "in/drifted/tools/genopro/webapp/exporter/resources/l10n/messages";
 
@@ -79,6 +111,7 @@ public class App {
 
         String mode = passedValuesMap.getOrDefault(PARAM_MODE, DEFAULT_MODE);
         boolean dynamic = mode.equals("dynamic");
+        boolean served = mode.equals("serve");
 
         if (passedValuesMap.containsKey(PARAM_INPUT_PATH)
                 && passedValuesMap.containsKey(PARAM_OUTPUT_FOLDER_PATH)
@@ -135,35 +168,44 @@ public class App {
                 additionalOptionMap.put("highlightMode", String.valueOf(highlightMode));
             }
 
-            Path individualsPath = outputFolderFolder.resolve("individuals.js");
-            Path genomapsPath = outputFolderFolder.resolve("genomaps.js");
-            Path reportPath = outputFolderFolder.resolve("index.html");
+            if (passedValuesMap.containsKey(PARAM_RENDER_THREADS)) {
+                int renderThreads = Integer.parseInt(passedValuesMap.get(PARAM_RENDER_THREADS));
+                additionalOptionMap.put("renderThreads", String.valueOf(renderThreads));
+            }
 
-            Document document = DocumentParser.getDocument(inputPath);
-            DocumentInfo documentInfo = DocumentParser.getDocumentInfo(document);
+            boolean watch = Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_WATCH, "false"));
 
-            DocumentParserOptions parserOptions = new DocumentParserOptions();
-            parserOptions.setUntitledGenoMapsExcluded(true);
-            parserOptions.setHyperlinkedIndividualInstancesDeduplicated(true);
-            LocalDate anonymizedSinceLocalDate = (anonymizedYears < 0) ? null
-                    : (anonymizedYears == 0) ? LocalDate.now() : LocalDate.now().minus(Period.ofYears(anonymizedYears));
-            parserOptions.setAnonymizedSinceDate(anonymizedSinceLocalDate);
+            // in the watch mode only the genomaps changed by the last save are rendered again
+            boolean incremental = watch || Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_INCREMENTAL, "false"));
+            additionalOptionMap.put("incremental", String.valueOf(incremental));
 
-            List<GenoMapData> genoMapDataList = DocumentDataUtil.getGenoMapDataList(document, parserOptions);
+            if (passedValuesMap.containsKey(PARAM_GZIP_LEVEL)) {
+                int gzipLevel = Integer.parseInt(passedValuesMap.get(PARAM_GZIP_LEVEL));
+                additionalOptionMap.put("gzipLevel", String.valueOf(gzipLevel));
+            }
 
-            GenoMapsExporter.export(genomapsPath, genoMapDataList);
-            IndividualsExporter.export(individualsPath, genoMapDataList, dateFormatter);
+            if (passedValuesMap.containsKey(PARAM_TILE_CAPACITY)) {
+                int tileCapacity = Integer.parseInt(passedValuesMap.get(PARAM_TILE_CAPACITY));
+                additionalOptionMap.put("tileCapacity", String.valueOf(tileCapacity));
+            }
 
-            if (dynamic) {
-                additionalOptionMap.put("relativeAppUrl", passedValuesMap.get(PARAM_RELATIVE_APP_URL));
+            if (passedValuesMap.containsKey(PARAM_OVERVIEW_ZOOM)) {
+                double overviewZoom = Double.parseDouble(passedValuesMap.get(PARAM_OVERVIEW_ZOOM));
+                additionalOptionMap.put("overviewZoom", String.valueOf(overviewZoom));
             }
 
-            DisplayStyle displayStyle = documentInfo.displayStyle();
+            boolean shardIndividuals = Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_SHARD_INDIVIDUALS, "false"));
+            additionalOptionMap.put("shardIndividuals", String.valueOf(shardIndividuals));
 
-            if (displayStyle == DisplayStyle.YEAR_OF_BIRTH_AND_YEAR_OF_DEATH
-                    || displayStyle == DisplayStyle.YEAR_OF_BIRTH_AND_YEAR_OF_DEATH_ID) {
+            boolean batchFamilyLines = Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_BATCH_FAMILY_LINES, "false"));
+            additionalOptionMap.put("batchFamilyLines", String.valueOf(batchFamilyLines));
 
-                dateFormatter = new DateFormatter("yyyy", locale, dateFormatter.getPrefixReplacementMap());
+            ExportEvents.setEnabled(Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_JFR_EVENTS, "false")));
+
+            boolean exportReportEnabled = Boolean.parseBoolean(passedValuesMap.getOrDefault(PARAM_EXPORT_REPORT, "false"));
+
+            if (dynamic || served) {
+                additionalOptionMap.put("relativeAppUrl", passedValuesMap.getOrDefault(PARAM_RELATIVE_APP_URL, ""));
             }
 
             PedigreeLinksSelectionMode pedigreeLinksSelectionMode = PedigreeLinksSelectionMode.NONE;
@@ -173,15 +215,30 @@ public class App {
                 }
             }
 
-            GeneratingOptions generatingOptions = new GeneratingOptions(locale, resourceBundle, fontFamily,
-                    displayStyle, dateFormatter, ageFormatter, unsupportedLabelColorSet, monochromeLabels,
-                    pedigreeLinksSelectionMode, additionalOptionMap);
+            // the font is not part of the export, so it is taken from the folder next to the archive
+            Path resourceFolderPath = (isArchive(outputFolderFolder) && !served)
+                    ? outputFolderFolder.toAbsolutePath().getParent() : outputFolderFolder;
+
+            TextMetricsFactory textMetricsFactory = getTextMetricsFactory(resourceFolderPath, relativeFontPath, fontFamily);
+
+            PreviewServer previewServer = null;
+
+            if (served) {
+                int port = Integer.parseInt(passedValuesMap.getOrDefault(PARAM_PORT, String.valueOf(DEFAULT_PORT)));
+                previewServer = PreviewServer.start(outputFolderFolder, additionalOptionMap.get("relativeAppUrl"), port);
+                System.out.println("Serving the preview at " + previewServer.getUrl());
+            }
 
-            if (dynamic) {
-                WebAppExporter.export(reportPath, documentInfo, genoMapDataList, generatingOptions);
+            ExportSettings exportSettings = new ExportSettings(inputPath, outputFolderFolder, dynamic, anonymizedYears,
+                    locale, resourceBundle, fontFamily, textMetricsFactory, dateFormatter, ageFormatter,
+                    unsupportedLabelColorSet, monochromeLabels, pedigreeLinksSelectionMode, additionalOptionMap,
+                    exportReportEnabled, previewServer);
+
+            if (watch) {
+                watch(exportSettings);
 
             } else {
-                WebAppExporter.exportAsStaticPage(reportPath, documentInfo, genoMapDataList, generatingOptions);
+                export(exportSettings, null);
             }
 
         } else {
@@ -189,13 +246,13 @@ public class App {
             System.out.println("""
                                Specify at least:
                                         - input GenoPro file path (-in:)
-                                        - output folder (-out:)
+                                        - output folder or zip archive (-out:)
                                         - relative app URL (-relativeAppUrl:)\n
                                Usage: java -jar genopro-webapp-exporter.jar
                                         -in:C:\\family-tree.gno
                                         -out:C:\\family-tree
                                         -relativeAppUrl:/family-tree
-                                       [-mode:dynamic]
+                                       [-mode:dynamic], dynamic|static|serve
                                        [-locale:en]
                                        [-anonymizedYears:100]
                                        [-datePattern:yyyy-MM-dd]
@@ -206,7 +263,229 @@ public class App {
                                        [-pedigreeLinksSelectionMode:none|manual]
                                        [-gaTrackingId:<empty>]
                                        [-highlightMode:0]
+                                       [-renderThreads:1], 0 means all available processors
+                                       [-incremental:false]
+                                       [-gzipLevel:<empty>], 1 (fastest) to 9 (best compression)
+                                       [-shardIndividuals:false]
+                                       [-tileCapacity:0], 0 means no tiling
+                                       [-overviewZoom:0], e.g. 0.4, 0 means no overview
+                                       [-batchFamilyLines:false]
+                                       [-exportReport:false]
+                                       [-jfrEvents:false]
+                                       [-watch:false]
+                                       [-port:8080]
                                """);
         }
     }
+
+    /**
+     * @param previousGeneratingOptions options of the previous export in the same JVM, reused if still applicable so
+     * the measured texts and wrapped lines are not computed again, or null
+     * @return options used for the export
+     */
+    private static GeneratingOptions export(ExportSettings exportSettings, GeneratingOptions previousGeneratingOptions)
+            throws IOException {
+
+        Path outputFolderPath = exportSettings.outputFolderPath();
+        Map<String, String> additionalOptionMap = exportSettings.additionalOptionMap();
+        DateFormatter dateFormatter = exportSettings.dateFormatter();
+        boolean shardIndividuals = Boolean.parseBoolean(additionalOptionMap.get("shardIndividuals"));
+        int anonymizedYears = exportSettings.anonymizedYears();
+
+        ExportReport exportReport = new ExportReport();
+
+        ExportReport.Measurement measurement = exportReport.startStage();
+        Document document = DocumentParser.getDocument(exportSettings.inputPath());
+        DocumentInfo documentInfo = DocumentParser.getDocumentInfo(document);
+        exportReport.endStage("parseDocument", measurement);
+
+        DocumentParserOptions parserOptions = new DocumentParserOptions();
+        parserOptions.setUntitledGenoMapsExcluded(true);
+        parserOptions.setHyperlinkedIndividualInstancesDeduplicated(true);
+        LocalDate anonymizedSinceLocalDate = (anonymizedYears < 0) ? null
+                : (anonymizedYears == 0) ? LocalDate.now() : LocalDate.now().minus(Period.ofYears(anonymizedYears));
+        parserOptions.setAnonymizedSinceDate(anonymizedSinceLocalDate);
+
+        measurement = exportReport.startStage();
+        List<GenoMapData> genoMapDataList = DocumentDataUtil.getGenoMapDataList(document, parserOptions);
+        exportReport.endStage("extractGenoMapData", measurement);
+
+        DisplayStyle displayStyle = documentInfo.displayStyle();
+
+        GeneratingOptions generatingOptions = previousGeneratingOptions;
+
+        if (generatingOptions == null || generatingOptions.getDisplayStyle() != displayStyle) {
+
+            // the year-only dates are used just for the genomaps, individuals keep the full dates
+            DateFormatter genoMapDateFormatter = dateFormatter;
+
+            if (displayStyle == DisplayStyle.YEAR_OF_BIRTH_AND_YEAR_OF_DEATH
+                    || displayStyle == DisplayStyle.YEAR_OF_BIRTH_AND_YEAR_OF_DEATH_ID) {
+
+                genoMapDateFormatter = new DateFormatter("yyyy", exportSettings.locale(), dateFormatter.getPrefixReplacementMap());
+            }
+
+            generatingOptions = new GeneratingOptions(exportSettings.locale(), exportSettings.resourceBundle(),
+                    exportSettings.fontFamily(), exportSettings.textMetricsFactory(), displayStyle, genoMapDateFormatter,
+                    exportSettings.ageFormatter(), exportSettings.unsupportedLabelColorSet(),
+                    exportSettings.monochromeLabels(), exportSettings.pedigreeLinksSelectionMode(), additionalOptionMap);
+        }
+
+        MemoryOutputSink memoryOutputSink = (exportSettings.previewServer() != null) ? new MemoryOutputSink() : null;
+
+        OutputSink outputSink = (memoryOutputSink != null) ? memoryOutputSink
+                : createOutputSink(outputFolderPath, CompressingOutputSink.getGzipLevel(additionalOptionMap));
+
+        try (outputSink) {
+
+            measurement = exportReport.startStage();
+            GenoMapsExporter.export(outputSink, "genomaps.js", genoMapDataList);
+            exportReport.endStage("exportGenoMapList", measurement);
+
+            measurement = exportReport.startStage();
+            IndividualsExporter.export(outputSink, "individuals.js", genoMapDataList, dateFormatter, shardIndividuals);
+            exportReport.endStage("exportIndividuals", measurement);
+
+            if (memoryOutputSink != null) {
+                WebAppExporter.exportForPreview(outputSink, "index.html", documentInfo, genoMapDataList, generatingOptions, exportReport);
+                exportSettings.previewServer().update(memoryOutputSink, genoMapDataList, generatingOptions);
+
+            } else if (exportSettings.dynamic()) {
+                WebAppExporter.export(outputSink, "index.html", documentInfo, genoMapDataList, generatingOptions, exportReport);
+
+            } else {
+                WebAppExporter.exportAsStaticPage(outputSink, "index.html", documentInfo, genoMapDataList, generatingOptions, exportReport);
+            }
+        }
+
+        if (exportSettings.exportReportEnabled()) {
+            Path reportFolderPath = isArchive(outputFolderPath) ? outputFolderPath.toAbsolutePath().getParent() : outputFolderPath;
+            exportReport.write(reportFolderPath.resolve(EXPORT_REPORT_FILE_NAME), outputSink.getFileSizeMap());
+        }
+
+        return generatingOptions;
+    }
+
+    /**
+     * Exports the input file and then again whenever it is saved, until the process is terminated. Editors may write
+     * the file in several steps, so the export starts only when there has been no change for a while.
+     */
+    private static void watch(ExportSettings exportSettings) throws IOException {
+
+        Path inputPath = exportSettings.inputPath().toAbsolutePath();
+        Path inputFileName = inputPath.getFileName();
+
+        try (WatchService watchService = inputPath.getFileSystem().newWatchService()) {
+
+            // files are watched through their folder, also to notice the file being replaced by the saved copy
+            inputPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            GeneratingOptions generatingOptions = exportInWatchMode(exportSettings, null);
+
+            while (true) {
+
+                System.out.println("Watching " + inputPath + " for changes");
+
+                boolean changed = false;
+
+                while (!changed) {
+                    changed = isChanged(watchService.take(), inputFileName);
+                }
+
+                WatchKey watchKey;
+
+                while ((watchKey = watchService.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isChanged(watchKey, inputFileName);
+                }
+
+                generatingOptions = exportInWatchMode(exportSettings, generatingOptions);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a failed export (e.g. when the file is still being written) must not terminate the watching
+    private static GeneratingOptions exportInWatchMode(ExportSettings exportSettings,
+            GeneratingOptions generatingOptions) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+            generatingOptions = export(exportSettings, generatingOptions);
+            System.out.println("Exported in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+
+        } catch (IOException | RuntimeException e) {
+            // the cause chain tells e.g. which genomap or template failed
+            System.err.print("Export failed: ");
+            e.printStackTrace();
+        }
+
+        return generatingOptions;
+    }
+
+    private static boolean isChanged(WatchKey watchKey, Path fileName) {
+
+        boolean changed = false;
+
+        for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(watchEvent.context())) {
+                changed = true;
+            }
+        }
+
+        watchKey.reset();
+
+        return changed;
+    }
+
+    private static boolean isArchive(Path outputPath) {
+        return outputPath.getFileName().toString().toLowerCase().endsWith(".zip");
+    }
+
+    /**
+     * @return sink writing either into the zip archive or into the folder
+     */
+    private static OutputSink createOutputSink(Path outputPath, int gzipLevel) throws IOException {
+
+        if (isArchive(outputPath)) {
+
+            OutputSink outputSink = new ZipOutputSink(new BufferedOutputStream(Files.newOutputStream(outputPath)));
+
+            return (gzipLevel == CompressingOutputSink.NO_COMPRESSION)
+                    ? outputSink : new CompressingOutputSink(outputSink, gzipLevel);
+        }
+
+        return OutputSink.of(outputPath, gzipLevel);
+    }
+
+    private static TextMetricsFactory getTextMetricsFactory(Path outputFolderPath, String relativeFontPath,
+            String fontFamily) {
+
+        Path fontPath = outputFolderPath.resolve(relativeFontPath);
+
+        if (Files.isRegularFile(fontPath)) {
+            try {
+                return FontFile.load(fontPath);
+
+            } catch (IOException e) {
+                System.err.println("Unable to read font metrics from " + fontPath + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println("Using metrics of the installed font " + fontFamily + " as a fallback");
+
+        return new AwtTextMetricsFactory(fontFamily);
+    }
+
+    // settings which stay the same for all exports of the watch mode, the preview server is null unless serving
+    private record ExportSettings(Path inputPath, Path outputFolderPath, boolean dynamic, int anonymizedYears,
+            Locale locale, ResourceBundle resourceBundle, String fontFamily, TextMetricsFactory textMetricsFactory,
+            DateFormatter dateFormatter, AgeFormatter ageFormatter, Set<Color> unsupportedLabelColorSet,
+            boolean monochromeLabels, PedigreeLinksSelectionMode pedigreeLinksSelectionMode,
+            Map<String, String> additionalOptionMap, boolean exportReportEnabled, PreviewServer previewServer) {
+
+    }
 }
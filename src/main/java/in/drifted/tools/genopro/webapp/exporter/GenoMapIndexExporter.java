@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter;
+
+import in.drifted.tools.genopro.core.model.GenoMap;
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.core.model.Individual;
+import in.drifted.tools.genopro.core.model.Position;
+import in.drifted.tools.genopro.core.model.Rect;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.JsonUtil;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial index of the individuals rendered in a genomap, so the web app can locate and hit-test them without querying
+ * the SVG DOM. Active areas (boundary rects reduced by the box size) are stored in SVG coordinates and registered in
+ * all cells of a uniform grid they overlap. Ordinals follow the rendering order, so the last match is the topmost one.
+ */
+public class GenoMapIndexExporter {
+
+    private static final int CELL_SIZE = 256;
+    private static final int BOX_SIZE = 8;
+
+    public static void export(OutputSink outputSink, GenoMapData genoMapData) throws IOException {
+
+        GenoMap genoMap = genoMapData.genoMap();
+
+        Position topLeft = genoMap.boundaryRect().topLeft();
+        Position bottomRight = genoMap.boundaryRect().bottomRight();
+        int columns = Math.max(1, Math.ceilDiv(bottomRight.x() - topLeft.x(), CELL_SIZE));
+        int rows = Math.max(1, Math.ceilDiv(topLeft.y() - bottomRight.y(), CELL_SIZE));
+
+        int shiftX = SvgExporter.getShiftX(genoMap);
+        int shiftY = SvgExporter.getShiftY(genoMap);
+
+        List<String> idList = new ArrayList<>();
+        List<int[]> rectList = new ArrayList<>();
+
+        for (Individual individual : genoMapData.individualSet()) {
+            if (!individual.isAnonymized()) {
+                Rect rect = Rect.fromBoundaryRect(individual.boundaryRect());
+                idList.add(individual.id());
+                rectList.add(new int[]{
+                    rect.x() - shiftX + BOX_SIZE,
+                    shiftY - rect.y() + BOX_SIZE,
+                    rect.width() - 2 * BOX_SIZE,
+                    rect.height() - 2 * BOX_SIZE
+                });
+            }
+        }
+
+        List<List<Integer>> cellList = new ArrayList<>(columns * rows);
+
+        for (int i = 0; i < columns * rows; i++) {
+            cellList.add(new ArrayList<>());
+        }
+
+        for (int ordinal = 0; ordinal < rectList.size(); ordinal++) {
+
+            int[] rect = rectList.get(ordinal);
+
+            int firstColumn = getCellIndex(rect[0], columns);
+            int lastColumn = getCellIndex(rect[0] + rect[2], columns);
+            int firstRow = getCellIndex(rect[1], rows);
+            int lastRow = getCellIndex(rect[1] + rect[3], rows);
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    cellList.get(row * columns + column).add(ordinal);
+                }
+            }
+        }
+
+        StringBuilder json = new StringBuilder(32 * idList.size() + 8 * cellList.size());
+
+        json.append("{\"i\":[");
+        for (int i = 0; i < idList.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonUtil.appendString(json, idList.get(i));
+        }
+
+        json.append("],\"r\":[");
+        for (int i = 0; i < rectList.size(); i++) {
+            int[] rect = rectList.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(rect[0]).append(',').append(rect[1]).append(',').append(rect[2]).append(',').append(rect[3]);
+        }
+
+        json.append("],\"s\":").append(CELL_SIZE);
+        json.append(",\"n\":").append(columns);
+        json.append(",\"g\":[");
+        for (int i = 0; i < cellList.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[');
+            List<Integer> ordinalList = cellList.get(i);
+            for (int j = 0; j < ordinalList.size(); j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append(ordinalList.get(j));
+            }
+            json.append(']');
+        }
+        json.append("]}");
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(getFileName(genoMap))) {
+            writer.write("addGenoMapIndex(");
+            JsonUtil.writeScriptStringLiteral(writer, genoMap.id());
+            writer.write(", JSON.parse(");
+            JsonUtil.writeScriptStringLiteral(writer, json);
+            writer.write("));\n");
+        }
+    }
+
+    public static String getFileName(GenoMap genoMap) {
+        return genoMap.id() + "-index.js";
+    }
+
+    private static int getCellIndex(int coordinate, int cellCount) {
+        return Math.min(Math.max(Math.floorDiv(coordinate, CELL_SIZE), 0), cellCount - 1);
+    }
+}
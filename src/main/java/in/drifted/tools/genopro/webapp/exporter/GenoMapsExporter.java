@@ -17,17 +17,24 @@ package in.drifted.tools.genopro.webapp.exporter;
 
 import in.drifted.tools.genopro.core.model.GenoMap;
 import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.webapp.exporter.output.CompressingOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 public class GenoMapsExporter {
 
     public static void export(Path genomapsPath, List<GenoMapData> genoMapDataList) throws IOException {
+        try (OutputSink outputSink = OutputSink.of(genomapsPath.toAbsolutePath().getParent(), CompressingOutputSink.NO_COMPRESSION)) {
+            export(outputSink, genomapsPath.getFileName().toString(), genoMapDataList);
+        }
+    }
+
+    public static void export(OutputSink outputSink, String fileName, List<GenoMapData> genoMapDataList) throws IOException {
 
-        try (BufferedWriter writer = Files.newBufferedWriter(genomapsPath)) {
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
 
             writer.write("const genoMapMap = new Map()\n");
 
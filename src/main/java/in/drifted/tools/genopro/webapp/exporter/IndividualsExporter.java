@@ -23,71 +23,323 @@ import in.drifted.tools.genopro.core.util.DocumentDataUtil;
 import in.drifted.tools.genopro.core.util.MapUtil;
 import in.drifted.tools.genopro.core.util.comparator.IndividualBirthDateComparator;
 import in.drifted.tools.genopro.core.util.formatter.DateFormatter;
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
+import in.drifted.tools.genopro.webapp.exporter.event.IndividualsSortEvent;
+import in.drifted.tools.genopro.webapp.exporter.output.CompressingOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.JsonUtil;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.text.Normalizer;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 public class IndividualsExporter {
 
+    private static final int ID_COLUMN = 0;
+    private static final int GENOMAP_COLUMN = 1;
+    private static final int FIRST_NAME_COLUMN = 2;
+    private static final int MIDDLE_NAME_COLUMN = 3;
+    private static final int LAST_NAME_COLUMN = 4;
+    private static final int BIRTH_COLUMN = 5;
+    private static final int DEATH_COLUMN = 6;
+    private static final int MATES_COLUMN = 7;
+    private static final int FATHER_COLUMN = 8;
+    private static final int MOTHER_COLUMN = 9;
+    private static final int COLUMN_COUNT = 10;
+
+    private static final Pattern COMBINING_MARK_PATTERN = Pattern.compile("[\\u0300-\\u036f]");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private static final int[] ALL_COLUMNS = {
+        ID_COLUMN, GENOMAP_COLUMN, FIRST_NAME_COLUMN, MIDDLE_NAME_COLUMN, LAST_NAME_COLUMN,
+        BIRTH_COLUMN, DEATH_COLUMN, MATES_COLUMN, FATHER_COLUMN, MOTHER_COLUMN
+    };
+
+    // everything needed for searching and listing the results
+    private static final int[] CORE_COLUMNS = {
+        ID_COLUMN, GENOMAP_COLUMN, FIRST_NAME_COLUMN, MIDDLE_NAME_COLUMN, LAST_NAME_COLUMN, BIRTH_COLUMN
+    };
+
+    private static final int[] SEARCHABLE_COLUMNS = {
+        FIRST_NAME_COLUMN, MIDDLE_NAME_COLUMN, LAST_NAME_COLUMN, BIRTH_COLUMN
+    };
+
+    private static final int[] SHARD_COLUMNS = {
+        ID_COLUMN, DEATH_COLUMN, MATES_COLUMN, FATHER_COLUMN, MOTHER_COLUMN
+    };
+
     public static void export(Path individualsPath, List<GenoMapData> genoMapDataList, DateFormatter dateFormatter) throws IOException {
+        try (OutputSink outputSink = OutputSink.of(individualsPath.toAbsolutePath().getParent(), CompressingOutputSink.NO_COMPRESSION)) {
+            export(outputSink, individualsPath.getFileName().toString(), genoMapDataList, dateFormatter, false);
+        }
+    }
+
+    /**
+     * @param sharded if true, the file contains just the core index needed for searching (names, birth dates and
+     * genomap ids) and the remaining details are written per genomap into separate shards loaded on demand
+     */
+    public static void export(OutputSink outputSink, String fileName, List<GenoMapData> genoMapDataList, DateFormatter dateFormatter, boolean sharded) throws IOException {
 
         Map<String, Individual> individualMap = getValidIndividualMap(genoMapDataList);
+
+        IndividualsSortEvent event = ExportEvents.isEnabled() ? IndividualsSortEvent.start() : null;
         individualMap = MapUtil.sortByValue(individualMap, new IndividualBirthDateComparator(true));
 
+        if (event != null) {
+            event.finish(individualMap.size());
+        }
+
         Map<String, FamilyRelation> familyRelationMap = DocumentDataUtil.getFamilyRelationMap(genoMapDataList, individualMap);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(individualsPath)) {
+        List<String[]> rowList = new ArrayList<>(individualMap.size());
+
+        for (Individual individual : individualMap.values()) {
+            rowList.add(getRow(individual, familyRelationMap.get(individual.id()), dateFormatter));
+        }
+
+        StringBuilder json = new StringBuilder(32 * COLUMN_COUNT * rowList.size());
+        json.append('{');
+
+        if (sharded) {
+
+            Map<String, List<String[]>> shardRowListMap = new LinkedHashMap<>();
+
+            for (String[] row : rowList) {
+                shardRowListMap.computeIfAbsent(row[GENOMAP_COLUMN], key -> new ArrayList<>()).add(row);
+            }
+
+            for (Map.Entry<String, List<String[]>> entry : shardRowListMap.entrySet()) {
+                exportShard(outputSink, entry.getKey(), entry.getValue());
+            }
+
+            appendColumnarJson(json, rowList, CORE_COLUMNS);
+            json.append(',');
+            appendSearchIndexJson(json, rowList);
+            json.append(",\"h\":{");
+
+            int index = 0;
+
+            for (String genoMapId : shardRowListMap.keySet()) {
+                if (index++ > 0) {
+                    json.append(',');
+                }
+                JsonUtil.appendString(json, genoMapId);
+                json.append(':');
+                JsonUtil.appendString(json, getShardFileName(genoMapId));
+            }
+
+            json.append('}');
+
+        } else {
+            appendColumnarJson(json, rowList, ALL_COLUMNS);
+            json.append(',');
+            appendSearchIndexJson(json, rowList);
+        }
+
+        json.append('}');
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            writer.write("const iData = JSON.parse(");
+            JsonUtil.writeScriptStringLiteral(writer, json);
+            writer.write(");\n");
+        }
+    }
+
+    public static String getShardFileName(String genoMapId) {
+        return "individuals-" + genoMapId + ".js";
+    }
+
+    /**
+     * File names of the shards written in the sharded mode, in the genomap order.
+     */
+    public static List<String> getShardFileNameList(List<GenoMapData> genoMapDataList) {
+
+        Set<String> genoMapIdSet = new HashSet<>();
+
+        for (Individual individual : getValidIndividualMap(genoMapDataList).values()) {
+            genoMapIdSet.add(individual.genoMap().id());
+        }
+
+        List<String> shardFileNameList = new ArrayList<>();
+
+        for (GenoMapData genoMapData : genoMapDataList) {
+            String genoMapId = genoMapData.genoMap().id();
+            if (genoMapIdSet.contains(genoMapId)) {
+                shardFileNameList.add(getShardFileName(genoMapId));
+            }
+        }
+
+        return shardFileNameList;
+    }
+
+    private static void exportShard(OutputSink outputSink, String genoMapId, List<String[]> rowList) throws IOException {
+
+        StringBuilder json = new StringBuilder(32 * SHARD_COLUMNS.length * rowList.size());
+        json.append('{');
+        appendColumnarJson(json, rowList, SHARD_COLUMNS);
+        json.append('}');
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(getShardFileName(genoMapId))) {
+            writer.write("addIndividualDetails(");
+            JsonUtil.writeScriptStringLiteral(writer, genoMapId);
+            writer.write(", JSON.parse(");
+            JsonUtil.writeScriptStringLiteral(writer, json);
+            writer.write("));\n");
+        }
+    }
 
-            writer.write("const iMap = new Map()\n");
+    private static String[] getRow(Individual individual, FamilyRelation familyRelation, DateFormatter dateFormatter) {
 
-            for (Individual individual : individualMap.values()) {
+        String[] row = new String[COLUMN_COUNT];
 
-                Collection<String> data = new ArrayList<>();
+        Name name = individual.name();
 
-                String individualId = individual.id();
-                Name name = individual.name();
+        row[ID_COLUMN] = individual.id();
+        row[GENOMAP_COLUMN] = individual.genoMap().id();
+        row[FIRST_NAME_COLUMN] = (name.first() != null) ? name.first() : "";
+        row[MIDDLE_NAME_COLUMN] = (name.middle() != null) ? name.middle() : "";
+        row[LAST_NAME_COLUMN] = (name.last() != null) ? name.last() : "";
+        row[BIRTH_COLUMN] = DocumentDataUtil.getFormattedDate(individual.birth(), dateFormatter);
+        row[DEATH_COLUMN] = DocumentDataUtil.getFormattedDate(individual.death(), dateFormatter);
+        row[MATES_COLUMN] = (familyRelation.mateIdList() != null) ? String.join(",", familyRelation.mateIdList()) : "";
+        row[FATHER_COLUMN] = (familyRelation.fatherId() != null) ? familyRelation.fatherId() : "";
+        row[MOTHER_COLUMN] = (familyRelation.motherId() != null) ? familyRelation.motherId() : "";
 
-                if (name != null) {
+        return row;
+    }
 
-                    FamilyRelation familyRelation = familyRelationMap.get(individualId);
+    /**
+     * Appends "s":[string table],"c":[[column],...] where the columns hold string table indices. Strings are ordered by
+     * frequency, so the most repeated values (empty strings, surnames, genomap ids) get the shortest indices.
+     */
+    private static void appendColumnarJson(StringBuilder json, List<String[]> rowList, int[] columns) {
 
-                    // genomap
-                    data.add(individual.genoMap().id());
+        Map<String, Integer> stringCountMap = new HashMap<>();
 
-                    // names
-                    String firstName = name.first();
-                    String middleName = name.middle();
-                    String lastName = name.last();
+        for (String[] row : rowList) {
+            for (int column : columns) {
+                stringCountMap.merge(row[column], 1, Integer::sum);
+            }
+        }
 
-                    data.add(firstName != null ? firstName : "");
-                    data.add(middleName != null ? middleName : "");
-                    data.add(lastName != null ? lastName : "");
+        List<String> stringList = new ArrayList<>(stringCountMap.keySet());
+        stringList.sort(Comparator.comparing((String value) -> stringCountMap.get(value)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
 
-                    // birth
-                    data.add(DocumentDataUtil.getFormattedDate(individual.birth(), dateFormatter));
+        Map<String, Integer> stringIndexMap = new HashMap<>();
 
-                    // death
-                    data.add(DocumentDataUtil.getFormattedDate(individual.death(), dateFormatter));
+        json.append("\"s\":[");
 
-                    // mates
-                    data.add((familyRelation.mateIdList() != null) ? String.join(",", familyRelation.mateIdList()) : "");
+        for (int i = 0; i < stringList.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonUtil.appendString(json, stringList.get(i));
+            stringIndexMap.put(stringList.get(i), i);
+        }
 
-                    // father
-                    data.add(familyRelation.fatherId() != null ? familyRelation.fatherId() : "");
+        json.append("],\"c\":[");
 
-                    // mother
-                    data.add(familyRelation.motherId() != null ? familyRelation.motherId() : "");
+        for (int c = 0; c < columns.length; c++) {
 
-                    writer.write("iMap.set(\"" + individualId + "\",[\"" + String.join("\",\"", data) + "\"])\n");
+            if (c > 0) {
+                json.append(',');
+            }
+
+            json.append('[');
+
+            for (int i = 0; i < rowList.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
                 }
+                json.append(stringIndexMap.get(rowList.get(i)[columns[c]]).intValue());
             }
+
+            json.append(']');
         }
+
+        json.append(']');
+    }
+
+    /**
+     * Appends "k":[sorted tokens],"p":[[posting],...] where tokens are folded words of the searchable columns and
+     * postings are the ascending row ordinals containing the token, delta encoded. Search then looks keywords up as
+     * prefixes in the sorted token dictionary instead of scanning all the individuals.
+     */
+    private static void appendSearchIndexJson(StringBuilder json, List<String[]> rowList) {
+
+        Map<String, List<Integer>> postingListMap = new TreeMap<>();
+
+        for (int i = 0; i < rowList.size(); i++) {
+
+            String[] row = rowList.get(i);
+
+            for (int column : SEARCHABLE_COLUMNS) {
+                for (String token : WHITESPACE_PATTERN.split(fold(row[column]))) {
+                    if (!token.isEmpty()) {
+                        List<Integer> postingList = postingListMap.computeIfAbsent(token, key -> new ArrayList<>());
+                        if (postingList.isEmpty() || postingList.get(postingList.size() - 1) != i) {
+                            postingList.add(i);
+                        }
+                    }
+                }
+            }
+        }
+
+        json.append("\"k\":[");
+
+        int index = 0;
+
+        for (String token : postingListMap.keySet()) {
+            if (index++ > 0) {
+                json.append(',');
+            }
+            JsonUtil.appendString(json, token);
+        }
+
+        json.append("],\"p\":[");
+
+        index = 0;
+
+        for (List<Integer> postingList : postingListMap.values()) {
+
+            if (index++ > 0) {
+                json.append(',');
+            }
+
+            json.append('[');
+
+            int previous = 0;
+
+            for (int i = 0; i < postingList.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(postingList.get(i) - previous);
+                previous = postingList.get(i);
+            }
+
+            json.append(']');
+        }
+
+        json.append(']');
+    }
+
+    // keep in sync with foldText in main.js
+    private static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARK_PATTERN.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
     }
 
     private static Map<String, Individual> getValidIndividualMap(List<GenoMapData> genoMapDataList) {
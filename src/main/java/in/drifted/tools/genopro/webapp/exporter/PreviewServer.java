@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.output.MemoryOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.FingerprintUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the app exported for preview on the loopback interface. The export is kept in memory, only static resources
+ * are read from the folder. Genomap SVGs are rendered once first requested, so the app can be reviewed right after the
+ * light files are exported. Served files are kept along with their compressed variant and entity tag, so browsers can
+ * revalidate them by conditional requests.
+ */
+public class PreviewServer {
+
+    private static final String INDEX_FILE_NAME = "index.html";
+
+    private static final Map<String, String> CONTENT_TYPE_MAP = Map.of(
+            "html", "text/html; charset=utf-8",
+            "js", "text/javascript; charset=utf-8",
+            "css", "text/css; charset=utf-8",
+            "json", "application/json; charset=utf-8",
+            "svg", "image/svg+xml",
+            "woff", "font/woff",
+            "png", "image/png",
+            "ico", "image/x-icon"
+    );
+
+    private static final Set<String> COMPRESSIBLE_EXTENSION_SET = Set.of("html", "js", "css", "json", "svg");
+
+    private final HttpServer httpServer;
+    private final Path folderPath;
+    private final String contextPath;
+
+    // replaced by every export, so requests are always served from a single export
+    private volatile Export export;
+
+    private PreviewServer(HttpServer httpServer, Path folderPath, String contextPath) {
+        this.httpServer = httpServer;
+        this.folderPath = folderPath.toAbsolutePath().normalize();
+        this.contextPath = contextPath;
+    }
+
+    /**
+     * @param relativeAppUrl the URL path the app is served at, e.g. /family-tree, or an empty string for the root
+     */
+    public static PreviewServer start(Path folderPath, String relativeAppUrl, int port) throws IOException {
+
+        String contextPath = relativeAppUrl.endsWith("/") ? relativeAppUrl : relativeAppUrl + "/";
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        PreviewServer previewServer = new PreviewServer(httpServer, folderPath, contextPath);
+
+        httpServer.createContext(contextPath, previewServer::handle);
+        httpServer.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+        httpServer.start();
+
+        return previewServer;
+    }
+
+    public String getUrl() {
+        InetSocketAddress address = httpServer.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + contextPath;
+    }
+
+    /**
+     * Starts serving the files of a new export, genomaps are rendered into the same sink once requested.
+     */
+    public void update(MemoryOutputSink outputSink, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions) {
+        export = new Export(outputSink, genoMapDataList, generatingOptions);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try (exchange) {
+
+            String method = exchange.getRequestMethod();
+
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Export currentExport = export;
+            String fileName = getFileName(exchange.getRequestURI());
+
+            if (currentExport == null || fileName == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            Content content;
+
+            try {
+                content = getContent(currentExport, fileName);
+
+            } catch (NoSuchFileException e) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Unable to serve " + fileName + ": " + e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+
+            boolean compressed = content.compressedBytes() != null
+                    && isGzipAccepted(requestHeaders.getFirst("Accept-Encoding"));
+
+            // each representation has its own entity tag, so caches never mix them up
+            String entityTag = compressed ? content.compressedEntityTag() : content.entityTag();
+
+            responseHeaders.set("Content-Type", content.contentType());
+            responseHeaders.set("ETag", entityTag);
+            // the files change with every export, so they are always revalidated
+            responseHeaders.set("Cache-Control", "no-cache");
+
+            if (content.compressedBytes() != null) {
+                responseHeaders.set("Vary", "Accept-Encoding");
+            }
+
+            if (isNotModified(requestHeaders.getFirst("If-None-Match"), entityTag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] bytes = content.bytes();
+
+            if (compressed) {
+                responseHeaders.set("Content-Encoding", "gzip");
+                bytes = content.compressedBytes();
+            }
+
+            if (method.equals("HEAD")) {
+                responseHeaders.set("Content-Length", String.valueOf(bytes.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, bytes.length);
+
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * @return the path relative to the app or null if the request points outside of it
+     */
+    private String getFileName(URI requestUri) {
+
+        String path = requestUri.getPath();
+
+        if (path == null || !path.startsWith(contextPath)) {
+            return null;
+        }
+
+        String fileName = path.substring(contextPath.length());
+
+        if (fileName.isEmpty()) {
+            return INDEX_FILE_NAME;
+        }
+
+        Path filePath = folderPath.resolve(fileName).normalize();
+
+        return filePath.startsWith(folderPath) ? fileName : null;
+    }
+
+    private static boolean isResource(String fileName) {
+        return fileName.startsWith("res/") || fileName.startsWith("favicon/") || fileName.equals("attribution.js");
+    }
+
+    private Content getContent(Export currentExport, String fileName) throws IOException {
+
+        Content content = currentExport.contentMap.get(fileName);
+
+        if (content == null) {
+
+            for (GenoMapData genoMapData : currentExport.genoMapDataList) {
+                if (genoMapData.genoMap().title() != null && WebAppExporter.isGenoMapFile(fileName, genoMapData.genoMap())) {
+                    renderGenoMap(currentExport, genoMapData);
+                    break;
+                }
+            }
+
+            byte[] bytes = currentExport.outputSink.getBytes(fileName);
+
+            if (bytes == null) {
+
+                // resources are not part of the export, other files left in the output folder may be stale
+                if (!isResource(fileName)) {
+                    throw new NoSuchFileException(fileName);
+                }
+
+                bytes = Files.readAllBytes(folderPath.resolve(fileName));
+            }
+
+            content = createContent(fileName, bytes);
+            currentExport.contentMap.putIfAbsent(fileName, content);
+        }
+
+        return content;
+    }
+
+    private void renderGenoMap(Export currentExport, GenoMapData genoMapData) throws IOException {
+
+        String genoMapId = genoMapData.genoMap().id();
+
+        if (currentExport.renderedGenoMapIdSet.contains(genoMapId)) {
+            return;
+        }
+
+        // all files of the genomap are rendered at once, just by the first request
+        synchronized (currentExport.renderLockMap.computeIfAbsent(genoMapId, key -> new Object())) {
+            if (!currentExport.renderedGenoMapIdSet.contains(genoMapId)) {
+                WebAppExporter.exportGenoMap(currentExport.outputSink, genoMapData, currentExport.generatingOptions);
+                currentExport.renderedGenoMapIdSet.add(genoMapId);
+            }
+        }
+    }
+
+    private static Content createContent(String fileName, byte[] bytes) throws IOException {
+
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        String contentType = CONTENT_TYPE_MAP.getOrDefault(extension, "application/octet-stream");
+        String fingerprint = FingerprintUtil.getContentFingerprint(bytes);
+        byte[] compressedBytes = null;
+
+        if (COMPRESSIBLE_EXTENSION_SET.contains(extension)) {
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4);
+
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                gzipOutputStream.write(bytes);
+            }
+
+            compressedBytes = outputStream.toByteArray();
+        }
+
+        return new Content(bytes, compressedBytes, contentType, "\"" + fingerprint + "\"", "\"" + fingerprint + "-gz\"");
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String entityTag) {
+
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String value : ifNoneMatch.split(",")) {
+            value = value.trim();
+            if (value.equals("*") || value.equals(entityTag) || value.equals("W/" + entityTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isGzipAccepted(String acceptEncoding) {
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String value : acceptEncoding.toLowerCase().split(",")) {
+
+            String[] parts = value.trim().split(";");
+
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+
+        return false;
+    }
+
+    private static class Export {
+
+        private final MemoryOutputSink outputSink;
+        private final List<GenoMapData> genoMapDataList;
+        private final GeneratingOptions generatingOptions;
+        private final Map<String, Content> contentMap = new ConcurrentHashMap<>();
+        private final Set<String> renderedGenoMapIdSet = ConcurrentHashMap.newKeySet();
+        private final Map<String, Object> renderLockMap = new ConcurrentHashMap<>();
+
+        Export(MemoryOutputSink outputSink, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions) {
+            this.outputSink = outputSink;
+            this.genoMapDataList = genoMapDataList;
+            this.generatingOptions = generatingOptions;
+        }
+    }
+
+    // the compressed bytes are null for files which are already compressed, e.g. fonts and images
+    private record Content(byte[] bytes, byte[] compressedBytes, String contentType, String entityTag,
+            String compressedEntityTag) {
+
+    }
+}
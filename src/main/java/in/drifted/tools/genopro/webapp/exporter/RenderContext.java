@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter;
+
+import in.drifted.tools.genopro.core.model.LabelStyle;
+import in.drifted.tools.genopro.core.model.Size;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.util.HighlightMode;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgGlyphSet;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgStyleSheet;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetrics;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values derived from the generating options which would otherwise be parsed or computed for every rendered element.
+ * Compiled once per SVG export and used by a single thread only. Styles shared by many elements are turned into class
+ * names of the style sheet, repeated shapes are turned into glyphs.
+ */
+final class RenderContext {
+
+    private static final double DEFAULT_LABEL_STROKE_WIDTH = 3.0;
+
+    private static final Map<Size, Double> FONT_SIZE_SCALE_FACTOR_MAP = new EnumMap<>(Size.class);
+    private static final Map<Size, Double> STROKE_WIDTH_SCALE_FACTOR_MAP = new EnumMap<>(Size.class);
+
+    static {
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.T, 0.63);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.S, 0.8);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.M, 1.109);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.L, 1.62);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XL, 2.22);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXL, 3.2);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXXL, 4.89);
+        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXXXL, 9.73);
+
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.T, 0.27);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.S, 0.7);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.M, 1.0);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.L, 1.35);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XL, 1.7);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXL, 2.0);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXXL, 2.2);
+        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXXXL, 2.8);
+    }
+
+    private final GeneratingOptions generatingOptions;
+    private final boolean textRendered;
+    private final boolean familyLinesBatched;
+    private final HighlightMode highlightMode;
+    private final String deathAbbrev;
+    private final Map<Size, Double> labelStrokeWidthMap = new EnumMap<>(Size.class);
+    private final Map<Size, Double> labelFontSizeMap = new EnumMap<>(Size.class);
+    private final Map<Size, TextMetrics> labelTextMetricsMap = new EnumMap<>(Size.class);
+    private final Map<Size, String> labelFontStyleMap = new EnumMap<>(Size.class);
+    private final Map<HighlightStyleKey, String> highlightStyleMap = new HashMap<>();
+    private final Map<LabelStyleKey, String> labelStyleMap = new HashMap<>();
+    private final Map<String, Integer> highlightIndexMap = new HashMap<>();
+    private final SvgStyleSheet styleSheet = new SvgStyleSheet();
+    private final SvgGlyphSet glyphSet = new SvgGlyphSet();
+
+    private RenderContext(GeneratingOptions generatingOptions, boolean textRendered) {
+
+        this.generatingOptions = generatingOptions;
+        this.textRendered = textRendered;
+        this.highlightMode = HighlightMode.of(Integer.parseInt(
+                generatingOptions.getAdditionalOptionsMap().getOrDefault("highlightMode", "0")));
+        this.deathAbbrev = generatingOptions.getResourceBundle().getString("deathAbbrev");
+        this.familyLinesBatched = Boolean.parseBoolean(
+                generatingOptions.getAdditionalOptionsMap().getOrDefault("batchFamilyLines", "false"));
+
+        for (Size size : Size.values()) {
+
+            double strokeWidthScaleFactor = STROKE_WIDTH_SCALE_FACTOR_MAP.getOrDefault(size, 1.0);
+            labelStrokeWidthMap.put(size, DEFAULT_LABEL_STROKE_WIDTH * strokeWidthScaleFactor);
+
+            Double fontSizeScaleFactor = FONT_SIZE_SCALE_FACTOR_MAP.get(size);
+
+            if (fontSizeScaleFactor != null) {
+                double fontSize = fontSizeScaleFactor * GeneratingOptions.MAIN_FONT_SIZE_IN_PIXELS;
+                labelFontSizeMap.put(size, fontSize);
+                labelFontStyleMap.put(size, "font-size:" + SvgStyleSheet.formatNumber(fontSize) + "px");
+                // metrics are measured at 10x size to reduce the rounding error
+                labelTextMetricsMap.put(size, generatingOptions.getTextMetrics(10 * fontSize));
+            }
+        }
+    }
+
+    static RenderContext compile(GeneratingOptions generatingOptions) {
+        return new RenderContext(generatingOptions, true);
+    }
+
+    /**
+     * Context for the overview variant, which contains just the shapes, i.e. no names, dates, ages or label texts.
+     */
+    static RenderContext compileOverview(GeneratingOptions generatingOptions) {
+        return new RenderContext(generatingOptions, false);
+    }
+
+    GeneratingOptions getGeneratingOptions() {
+        return generatingOptions;
+    }
+
+    boolean isTextRendered() {
+        return textRendered;
+    }
+
+    boolean isFamilyLinesBatched() {
+        return familyLinesBatched;
+    }
+
+    HighlightMode getHighlightMode() {
+        return highlightMode;
+    }
+
+    String getDeathAbbrev() {
+        return deathAbbrev;
+    }
+
+    double getLabelStrokeWidth(Size size) {
+        return labelStrokeWidthMap.getOrDefault(size, DEFAULT_LABEL_STROKE_WIDTH);
+    }
+
+    double getLabelFontSize(Size size) {
+        return labelFontSizeMap.get(size);
+    }
+
+    TextMetrics getScaledLabelTextMetrics(Size size) {
+        return labelTextMetricsMap.get(size);
+    }
+
+    SvgStyleSheet getStyleSheet() {
+        return styleSheet;
+    }
+
+    SvgGlyphSet getGlyphSet() {
+        return glyphSet;
+    }
+
+    /**
+     * @param idPrefix prefix making the clip path and glyph ids of the SVG document unique within the page
+     */
+    void startDocument(String idPrefix) {
+        styleSheet.startDocument(idPrefix + "c");
+        glyphSet.startDocument(idPrefix);
+    }
+
+    void writeDocumentDefinitions(SvgWriter writer, String genoMapId) throws IOException {
+        styleSheet.writeStyleElement(writer, genoMapId);
+        glyphSet.writeDefsElement(writer);
+    }
+
+    String getClassName(String declarations) {
+        return styleSheet.getClassName(declarations);
+    }
+
+    String getHighlightClassName(String highlightKey, int index, int highlightKeysCount) {
+
+        String className = styleSheet.getClassName(highlightStyleMap.computeIfAbsent(
+                new HighlightStyleKey(highlightKey, index, highlightKeysCount), RenderContext::createHighlightStyle));
+        highlightIndexMap.putIfAbsent(className, index);
+
+        return className;
+    }
+
+    /**
+     * @return the index of the highlight key the class was created for or -1 if it is not a highlight class
+     */
+    int getHighlightIndex(String className) {
+        return highlightIndexMap.getOrDefault(className, -1);
+    }
+
+    String getLabelClassName(LabelStyle labelStyle) {
+        return styleSheet.getClassName(labelStyleMap.computeIfAbsent(new LabelStyleKey(labelStyle.fillColor().toHex(),
+                labelStyle.border().color().toHex(), labelStyle.border().size()), this::createLabelStyle));
+    }
+
+    String getMonochromeLabelClassName(LabelStyle labelStyle) {
+        return styleSheet.getClassName(labelStyleMap.computeIfAbsent(new LabelStyleKey(null, null,
+                labelStyle.border().size()), this::createLabelStyle));
+    }
+
+    String getLabelFontClassName(Size size) {
+        return styleSheet.getClassName(labelFontStyleMap.get(size));
+    }
+
+    private String createLabelStyle(LabelStyleKey key) {
+
+        String strokeWidth = "stroke-width: " + SvgStyleSheet.formatNumber(getLabelStrokeWidth(key.borderSize()));
+
+        if (key.fillColor() == null) {
+            return strokeWidth;
+        }
+
+        return "fill: " + key.fillColor() + ";stroke: " + key.borderColor() + ";" + strokeWidth;
+    }
+
+    private static String createHighlightStyle(HighlightStyleKey key) {
+
+        StringBuilder style = new StringBuilder();
+        style.append("stroke:");
+        style.append(key.highlightKey().equals("n/a") ? "black" : key.highlightKey());
+
+        if (key.index() > 0) {
+            style.append(";stroke-dasharray:");
+            style.append(5 * (key.highlightKeysCount() - key.index()));
+            style.append(",");
+            style.append(5 * key.index());
+            style.append(";stroke-linecap:butt;");
+            style.append(";fill:none;");
+        }
+
+        return style.toString();
+    }
+
+    private record HighlightStyleKey(String highlightKey, int index, int highlightKeysCount) {
+
+    }
+
+    // colors are null for monochrome labels
+    private record LabelStyleKey(String fillColor, String borderColor, Size borderSize) {
+
+    }
+}
@@ -33,105 +33,131 @@ import in.drifted.tools.genopro.core.model.Name;
 import in.drifted.tools.genopro.core.model.PedigreeLink;
 import in.drifted.tools.genopro.core.model.Position;
 import in.drifted.tools.genopro.core.model.Rect;
-import in.drifted.tools.genopro.core.model.Size;
-import in.drifted.tools.genopro.core.util.TextWrapUtil;
 import in.drifted.tools.genopro.core.util.formatter.DateFormatter;
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
+import in.drifted.tools.genopro.webapp.exporter.event.GenoMapRenderEvent;
 import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.model.PedigreeLinksSelectionMode;
+import in.drifted.tools.genopro.webapp.exporter.util.ByteSvgWriter;
 import in.drifted.tools.genopro.webapp.exporter.util.HighlightMode;
-import java.awt.FontMetrics;
+import in.drifted.tools.genopro.webapp.exporter.util.LineBatchWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.LineWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgGlyphSet;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgGlyphSet.Glyph;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgLineWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgStyleSheet;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetrics;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 
 public class SvgExporter {
 
-    private static final Map<Size, Double> FONT_SIZE_SCALE_FACTOR_MAP = new HashMap<>();
-    private static final Map<Size, Double> STROKE_WIDTH_SCALE_FACTOR_MAP = new HashMap<>();
-
-    static {
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.T, 0.63);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.S, 0.8);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.M, 1.109);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.L, 1.62);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XL, 2.22);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXL, 3.2);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXXL, 4.89);
-        FONT_SIZE_SCALE_FACTOR_MAP.put(Size.XXXXL, 9.73);
-
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.T, 0.27);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.S, 0.7);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.M, 1.0);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.L, 1.35);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XL, 1.7);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXL, 2.0);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXXL, 2.2);
-        STROKE_WIDTH_SCALE_FACTOR_MAP.put(Size.XXXXL, 2.8);
+    /**
+     * @return the number of written SVG elements
+     */
+    public static long export(GenoMapData genoMapData, OutputStream outputStream, GeneratingOptions generatingOptions)
+            throws IOException {
+        return export(genoMapData, outputStream, RenderContext.compile(generatingOptions));
+    }
+
+    /**
+     * Lightweight variant intended for low zoom levels, with symbols, family lines and label shapes, but without any
+     * text.
+     *
+     * @return the number of written SVG elements
+     */
+    public static long exportOverview(GenoMapData genoMapData, OutputStream outputStream,
+            GeneratingOptions generatingOptions) throws IOException {
+        return export(genoMapData, outputStream, RenderContext.compileOverview(generatingOptions));
     }
 
-    public static void export(GenoMapData genoMapData, OutputStream outputStream, GeneratingOptions generatingOptions)
+    private static long export(GenoMapData genoMapData, OutputStream outputStream, RenderContext renderContext)
             throws IOException {
 
-        XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+        GenoMapRenderEvent event = ExportEvents.isEnabled() ? GenoMapRenderEvent.start() : null;
 
         GenoMap genoMap = genoMapData.genoMap();
+        GeneratingOptions generatingOptions = renderContext.getGeneratingOptions();
 
-        String id = genoMap.id();
-
-        try {
-
-            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(outputStream, "UTF-8");
-            writer.writeStartDocument();
-            writer.writeStartElement("svg");
-            writer.writeAttribute("id", id);
-            writer.writeAttribute("xmlns", "http://www.w3.org/2000/svg");
-            writer.writeAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
-            Position topLeft = genoMap.boundaryRect().topLeft();
-            Position bottomRight = genoMap.boundaryRect().bottomRight();
-            int shiftX = topLeft.x();
-            int shiftY = topLeft.y() + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS / 2;
-            int width = bottomRight.x() - topLeft.x();
-            int height = topLeft.y() - bottomRight.y();
-            writer.writeAttribute("viewBox", "0 0 " + width + " " + height);
-
-            for (Label label : genoMapData.labelSet()) {
-                if (!generatingOptions.getUnsupportedLabelColorSet().contains(label.labelStyle().fillColor())) {
-                    renderLabel(writer, label, shiftX, shiftY, generatingOptions);
-                }
-            }
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream);
+        writer.writeStartDocument();
+        writeSvgStartElement(writer, genoMap);
 
-            Map<String, Individual> individualMap = new HashMap<>();
-            for (Individual individual : genoMapData.individualSet()) {
-                individualMap.put(individual.id(), individual);
-            }
+        if (!renderContext.isTextRendered()) {
+            writer.writeAttribute("data-lod", "overview");
+        }
+
+        renderContext.startDocument(genoMap.id() + "-");
 
-            for (Family family : genoMapData.familySet()) {
-                renderFamilyRelations(writer, family, individualMap, shiftX, shiftY, generatingOptions);
+        int shiftX = getShiftX(genoMap);
+        int shiftY = getShiftY(genoMap);
+
+        for (Label label : genoMapData.labelSet()) {
+            if (!generatingOptions.getUnsupportedLabelColorSet().contains(label.labelStyle().fillColor())) {
+                renderLabel(writer, label, shiftX, shiftY, renderContext);
             }
+        }
 
-            for (Individual individual : genoMapData.individualSet()) {
-                if (!individual.isAnonymized()) {
-                    renderIndividual(writer, individual, shiftX, shiftY, generatingOptions);
-                }
+        Map<String, Individual> individualMap = new HashMap<>();
+        for (Individual individual : genoMapData.individualSet()) {
+            individualMap.put(individual.id(), individual);
+        }
+
+        renderFamilies(writer, genoMapData.familySet(), individualMap, shiftX, shiftY, renderContext);
+
+        for (Individual individual : genoMapData.individualSet()) {
+            if (!individual.isAnonymized()) {
+                renderIndividual(writer, individual, shiftX, shiftY, renderContext);
             }
+        }
 
-            writer.writeEndElement();
-            writer.writeEndDocument();
-            writer.flush();
+        // rules and glyphs apply to the whole document, so they can follow the elements they were collected from
+        renderContext.writeDocumentDefinitions(writer, genoMap.id());
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
 
-        } catch (XMLStreamException e) {
-            throw new IOException(e);
+        if (event != null) {
+            event.finish(genoMapData, renderContext.isTextRendered() ? "full" : "overview", writer.getElementCount());
         }
+
+        return writer.getElementCount();
+    }
+
+    static void writeSvgStartElement(SvgWriter writer, GenoMap genoMap) throws IOException {
+
+        Position topLeft = genoMap.boundaryRect().topLeft();
+        Position bottomRight = genoMap.boundaryRect().bottomRight();
+        int width = bottomRight.x() - topLeft.x();
+        int height = topLeft.y() - bottomRight.y();
+
+        writer.writeStartElement("svg");
+        writer.writeAttribute("id", genoMap.id());
+        writer.writeAttribute("xmlns", "http://www.w3.org/2000/svg");
+        writer.writeAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
+        writer.writeStartAttribute("viewBox");
+        writer.append("0 0 ").append(width).append(' ').append(height);
+        writer.writeEndAttribute();
+    }
+
+    static int getShiftX(GenoMap genoMap) {
+        return genoMap.boundaryRect().topLeft().x();
     }
 
-    private static void renderLabel(XMLStreamWriter writer, Label label, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    static int getShiftY(GenoMap genoMap) {
+        return genoMap.boundaryRect().topLeft().y() + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS / 2;
+    }
+
+    static void renderLabel(SvgWriter writer, Label label, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
         int width = label.rect().width();
         int height = label.rect().height();
@@ -141,34 +167,45 @@ public class SvgExporter {
         LabelStyle labelStyle = label.labelStyle();
 
         writer.writeStartElement("rect");
-        writer.writeAttribute("x", String.valueOf(rectX));
-        writer.writeAttribute("y", String.valueOf(rectY));
-        writer.writeAttribute("width", String.valueOf(width));
-        writer.writeAttribute("height", String.valueOf(height));
-        if (generatingOptions.hasMonochromeLabels()) {
-            writer.writeAttribute("class", "monochrome-label");
-            writer.writeAttribute("style", "stroke-width: "
-                    + getStrokeWidth(labelStyle.border().size(), 3.0));
+        writer.writeAttribute("x", rectX);
+        writer.writeAttribute("y", rectY);
+        writer.writeAttribute("width", width);
+        writer.writeAttribute("height", height);
+        if (renderContext.getGeneratingOptions().hasMonochromeLabels()) {
+            writer.writeStartAttribute("class");
+            writer.append("monochrome-label ").append(renderContext.getMonochromeLabelClassName(labelStyle));
+            writer.writeEndAttribute();
         } else {
-            writer.writeAttribute("style", getLabelStyleAttribute(labelStyle));
+            writer.writeAttribute("class", renderContext.getLabelClassName(labelStyle));
         }
         writer.writeEndElement();
 
+        if (!renderContext.isTextRendered()) {
+            return;
+        }
+
         int padding = labelStyle.padding();
-        String id = "idx-" + label.rect().hashCode();
 
-        writer.writeStartElement("clipPath");
-        writer.writeAttribute("id", id);
-        writer.writeStartElement("rect");
-        writer.writeAttribute("x", String.valueOf(rectX + padding));
-        writer.writeAttribute("y", String.valueOf(rectY + padding));
-        writer.writeAttribute("width", String.valueOf(width - 2 * padding));
-        writer.writeAttribute("height", String.valueOf(height - 2 * padding));
-        writer.writeEndElement();
-        writer.writeEndElement();
+        SvgStyleSheet styleSheet = renderContext.getStyleSheet();
+        String clipPathId = styleSheet.findClipPathId(rectX + padding, rectY + padding, width - 2 * padding,
+                height - 2 * padding);
+
+        if (clipPathId == null) {
+            clipPathId = styleSheet.addClipPathId(rectX + padding, rectY + padding, width - 2 * padding,
+                    height - 2 * padding);
+
+            writer.writeStartElement("clipPath");
+            writer.writeAttribute("id", clipPathId);
+            writer.writeStartElement("rect");
+            writer.writeAttribute("x", rectX + padding);
+            writer.writeAttribute("y", rectY + padding);
+            writer.writeAttribute("width", width - 2 * padding);
+            writer.writeAttribute("height", height - 2 * padding);
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
 
-        double scaleFactor = FONT_SIZE_SCALE_FACTOR_MAP.get(label.labelStyle().size());
-        double fontSize = scaleFactor * generatingOptions.getMainFontMetrics().getFont().getSize();
+        double fontSize = renderContext.getLabelFontSize(labelStyle.size());
 
         String text = label.text();
 
@@ -176,16 +213,16 @@ public class SvgExporter {
 
             List<String> lineList = Arrays.asList(text.split("\n", -1));
 
-            FontMetrics scaledFontMetrics = generatingOptions.getFontMetrics(10 * fontSize);
-            int ascent = scaledFontMetrics.getAscent() / 10;
-            int descent = scaledFontMetrics.getDescent() / 10;
+            TextMetrics scaledTextMetrics = renderContext.getScaledLabelTextMetrics(labelStyle.size());
+            int ascent = scaledTextMetrics.getAscent() / 10;
+            int descent = scaledTextMetrics.getDescent() / 10;
 
             List<String> wrappedLineList = new ArrayList<>();
 
             for (String line : lineList) {
-                wrappedLineList.addAll(TextWrapUtil.getWrappedLineList(line,
+                wrappedLineList.addAll(renderContext.getGeneratingOptions().getLineWrapCache().getWrappedLineList(line,
                         10 * (width - (2 * labelStyle.padding())),
-                        scaledFontMetrics));
+                        scaledTextMetrics));
             }
 
             int baseX = getLabelBaseX(rectX, width, labelStyle);
@@ -207,11 +244,13 @@ public class SvgExporter {
                 int y = baseY + (int) (1.36 * i * fontSize);
 
                 writer.writeStartElement("text");
-                writer.writeAttribute("clip-path", "url(#" + id + ")");
+                writer.writeStartAttribute("clip-path");
+                writer.append("url(#").append(clipPathId).append(')');
+                writer.writeEndAttribute();
                 writer.writeAttribute("text-anchor", getLabelTextAnchor(labelStyle));
-                writer.writeAttribute("x", String.valueOf(baseX));
-                writer.writeAttribute("y", String.valueOf(y));
-                writer.writeAttribute("style", "font-size:" + fontSize + "px");
+                writer.writeAttribute("x", baseX);
+                writer.writeAttribute("y", y);
+                writer.writeAttribute("class", renderContext.getLabelFontClassName(labelStyle.size()));
                 writer.writeCharacters(wrappedLineList.get(i));
                 writer.writeEndElement();
             }
@@ -223,52 +262,76 @@ public class SvgExporter {
                 int endX = startX + lineWidth;
                 int startY = rectY + height - padding + 2;
 
-                StringBuilder data = new StringBuilder();
-                data.append("M");
-                data.append(startX);
-                data.append(",");
-                data.append(startY);
-                data.append("h");
-                data.append(lineWidth);
+                writer.writeStartElement("path");
+                writer.writeStartAttribute("d");
+                writer.append('M').append(startX).append(',').append(startY).append('h').append(lineWidth);
 
                 if (lineWidth > (2 * arrowWidth)) {
-                    data.append("M");
-                    data.append(startX);
-                    data.append(",");
-                    data.append(startY);
-                    data.append("L");
-                    data.append(startX + arrowWidth / 2);
-                    data.append(",");
-                    data.append(startY + arrowWidth * 0.7);
-                    data.append("L");
-                    data.append(startX + arrowWidth);
-                    data.append(",");
-                    data.append(startY);
-                    data.append("M");
-                    data.append(endX);
-                    data.append(",");
-                    data.append(startY);
-                    data.append("L");
-                    data.append(endX - arrowWidth / 2);
-                    data.append(",");
-                    data.append(startY + arrowWidth * 0.7);
-                    data.append("L");
-                    data.append(endX - arrowWidth);
-                    data.append(",");
-                    data.append(startY);
+                    writer.append('M').append(startX).append(',').append(startY);
+                    writer.append('L').append(startX + arrowWidth / 2).append(',').append(startY + arrowWidth * 0.7);
+                    writer.append('L').append(startX + arrowWidth).append(',').append(startY);
+                    writer.append('M').append(endX).append(',').append(startY);
+                    writer.append('L').append(endX - arrowWidth / 2).append(',').append(startY + arrowWidth * 0.7);
+                    writer.append('L').append(endX - arrowWidth).append(',').append(startY);
                 }
 
-                writer.writeStartElement("path");
-                writer.writeAttribute("d", data.toString());
-                writer.writeAttribute("style", "stroke: red; stroke-width: 0.5px; fill: none;");
+                writer.writeEndAttribute();
+                writer.writeAttribute("class", renderContext.getClassName("stroke: red; stroke-width: 0.5px; fill: none;"));
                 writer.writeEndElement();
             }
         }
     }
 
-    private static void renderFamilyRelations(XMLStreamWriter writer, Family family,
-            Map<String, Individual> individualMap, int shiftX, int shiftY, GeneratingOptions generatingOptions)
-            throws XMLStreamException {
+    static void renderFamilies(SvgWriter writer, Collection<Family> familyCollection,
+            Map<String, Individual> individualMap, int shiftX, int shiftY, RenderContext renderContext)
+            throws IOException {
+
+        if (!renderContext.isFamilyLinesBatched()) {
+
+            LineWriter lineWriter = new SvgLineWriter(writer);
+
+            for (Family family : familyCollection) {
+                renderFamilyLines(lineWriter, family, individualMap, shiftX, shiftY, renderContext, writer);
+            }
+
+            return;
+        }
+
+        LineBatchWriter lineBatchWriter = new LineBatchWriter(
+                (className, styleClassName) -> getBatchLayer(className, styleClassName, renderContext),
+                renderContext.getGeneratingOptions().getPedigreeLinksSelectionMode() == PedigreeLinksSelectionMode.MANUAL);
+
+        for (Family family : familyCollection) {
+            renderFamilyLines(lineBatchWriter, family, individualMap, shiftX, shiftY, renderContext, null);
+        }
+
+        lineBatchWriter.writeBatches(writer);
+
+        // painted above the lines, as without batching
+        for (Family family : familyCollection) {
+            if (family.topBoundaryRect() != null) {
+                renderFamilyLabel(writer, family, shiftX, shiftY, renderContext);
+            }
+        }
+    }
+
+    // highlighted lines are painted above the others in the order of their highlight keys, the family line type
+    // symbols above all lines
+    private static int getBatchLayer(String className, String styleClassName, RenderContext renderContext) {
+
+        if (className.startsWith("family-line-")) {
+            return Integer.MAX_VALUE;
+        }
+
+        return (styleClassName != null) ? 1 + renderContext.getHighlightIndex(styleClassName) : 0;
+    }
+
+    /**
+     * @param labelWriter writer the family label is rendered into right after the top line, null if the label is
+     * rendered separately
+     */
+    private static void renderFamilyLines(LineWriter lineWriter, Family family, Map<String, Individual> individualMap,
+            int shiftX, int shiftY, RenderContext renderContext, SvgWriter labelWriter) throws IOException {
 
         String familyId = family.id();
         Position position = family.position();
@@ -278,8 +341,7 @@ public class SvgExporter {
         Rect topRect = null;
         Rect bottomRect = null;
 
-        HighlightMode highlightMode = HighlightMode.of(Integer.parseInt(
-                generatingOptions.getAdditionalOptionsMap().getOrDefault("highlightMode", "0")));
+        HighlightMode highlightMode = renderContext.getHighlightMode();
 
         boolean hasChildren = false;
 
@@ -309,144 +371,95 @@ public class SvgExporter {
 
             topRect = Rect.fromBoundaryRect(topBoundaryRect);
 
+            int x = topRect.x() - shiftX;
             int y = shiftY - topRect.y();
 
             String className = "family-line";
 
-            String linePathData = "M" + (topRect.x() - shiftX) + " " + y + "h" + topRect.width();
-
             if (highlightMode != HighlightMode.NONE) {
 
-                String[] linePathDataArray = new String[]{
-                    "M" + (topRect.x() - shiftX) + " " + y + "H" + (position.x() - shiftX),
-                    "M" + (position.x() - shiftX) + " " + y + "H" + (topRect.x() + topRect.width() - shiftX)
-                };
-
                 if (hasChildren) {
 
                     int i = 0;
 
                     for (String highlightKey : individual.highlightKeySet()) {
 
-                        StringBuilder style = new StringBuilder();
-                        style.append("stroke:");
-                        style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                        if (i > 0) {
-                            style.append(";stroke-dasharray:");
-                            style.append(5 * (highlightKeysCount - i));
-                            style.append(",");
-                            style.append(5 * i);
-                            style.append(";stroke-linecap:butt;");
-                            style.append(";fill:none;");
-                        }
+                        String highlightClassName = renderContext.getHighlightClassName(highlightKey, i, highlightKeysCount);
 
                         if (bottomBoundaryRect != null) {
 
-                            writer.writeStartElement("path");
-                            writer.writeAttribute("d", linePathDataArray[0]);
-
                             if (highlightMode == HighlightMode.PATERNAL) {
-                                writer.writeAttribute("class", className + " highlighted " + familyId);
-                                writer.writeAttribute("style", style.toString());
+                                lineWriter.startLine(className, " highlighted ", familyId, highlightClassName);
                             } else {
-                                writer.writeAttribute("class", className + " unhighlighted " + familyId);
+                                lineWriter.startLine(className, " unhighlighted ", familyId, null);
                             }
 
-                            writer.writeEndElement();
-
-                            writer.writeStartElement("path");
-                            writer.writeAttribute("d", linePathDataArray[1]);
+                            appendLine(lineWriter, x, y, 'H', position.x() - shiftX);
 
                             if (highlightMode == HighlightMode.MATERNAL) {
-                                writer.writeAttribute("class", className + " highlighted " + familyId);
-                                writer.writeAttribute("style", style.toString());
+                                lineWriter.startLine(className, " highlighted ", familyId, highlightClassName);
                             } else {
-                                writer.writeAttribute("class", className + " unhighlighted " + familyId);
+                                lineWriter.startLine(className, " unhighlighted ", familyId, null);
                             }
 
-                            writer.writeEndElement();
+                            appendLine(lineWriter, position.x() - shiftX, y, 'H', x + topRect.width());
 
                         } else {
-                            writer.writeStartElement("path");
-                            writer.writeAttribute("d", linePathData);
-                            writer.writeAttribute("class", className + " highlighted " + familyId);
-                            writer.writeAttribute("style", style.toString());
-                            writer.writeEndElement();
+                            lineWriter.startLine(className, " highlighted ", familyId, highlightClassName);
+                            appendLine(lineWriter, x, y, 'h', topRect.width());
                         }
 
                         i++;
                     }
 
                 } else {
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", linePathData);
-                    writer.writeAttribute("class", className + " unhighlighted " + familyId);
-                    writer.writeEndElement();
+                    lineWriter.startLine(className, " unhighlighted ", familyId, null);
+                    appendLine(lineWriter, x, y, 'h', topRect.width());
                 }
 
             } else {
-                writer.writeStartElement("path");
-                writer.writeAttribute("d", linePathData);
-                writer.writeAttribute("class", className + " " + familyId);
-                writer.writeEndElement();
+                lineWriter.startLine(className, " ", familyId, null);
+                appendLine(lineWriter, x, y, 'h', topRect.width());
             }
 
-            if (family.label() != null) {
-
-                String label = family.label();
-
-                int labelWidthInPixels = generatingOptions.getMainFontMetrics().stringWidth(label);
-                double centerX = topRect.x() - shiftX + topRect.width() / 2.0;
-                int fontSize = generatingOptions.getMainFontMetrics().getFont().getSize();
-                double textPadding = (GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - fontSize) / 2.0;
-
-                writer.writeStartElement("rect");
-                writer.writeAttribute("x", String.valueOf(centerX - labelWidthInPixels / 2.0));
-                writer.writeAttribute("y", String.valueOf(y - 1.3 * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
-                writer.writeAttribute("width", String.valueOf(labelWidthInPixels));
-                writer.writeAttribute("height", String.valueOf(GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
-                writer.writeAttribute("class", "family-label");
-                writer.writeEndElement();
-
-                writer.writeStartElement("text");
-                writer.writeAttribute("x", String.valueOf(centerX));
-                writer.writeAttribute("y",
-                        String.valueOf(y - 0.3 * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - textPadding));
-                writer.writeAttribute("class", "family-label");
-                writer.writeCharacters(label);
-                writer.writeEndElement();
+            if (labelWriter != null) {
+                renderFamilyLabel(labelWriter, family, shiftX, shiftY, renderContext);
             }
 
             if (family.familyLineType() != FamilyLineType.UNSPECIFIED) {
 
+                String familyLineTypeSymbolClassName = null;
                 String familyLineTypeSymbolPathData = null;
-                String familyLineTypeSymbolClassName = className;
-                double topRight = topRect.x() + topRect.width() - shiftX;
+                double symbolX = topRect.x() + topRect.width() - shiftX;
+                int symbolY = y;
 
                 switch (family.familyLineType()) {
                     case NO_MORE_CHILDREN:
-                        familyLineTypeSymbolPathData = "M" + (topRight - 6.5) + " " + (y + 3) + "h5v5h-5z";
-                        familyLineTypeSymbolClassName += "-no-more-children";
-
+                        familyLineTypeSymbolClassName = "family-line-no-more-children";
+                        familyLineTypeSymbolPathData = "h5v5h-5z";
+                        symbolX -= 6.5;
+                        symbolY += 3;
                         break;
 
                     case POSSIBLY_MORE_CHILDREN:
-                        familyLineTypeSymbolPathData = "M" + (topRight - 11) + " " + (y + 6) + "h8m-4 -4v8";
-                        familyLineTypeSymbolClassName += "-possibly-more-children";
+                        familyLineTypeSymbolClassName = "family-line-possibly-more-children";
+                        familyLineTypeSymbolPathData = "h8m-4 -4v8";
+                        symbolX -= 11;
+                        symbolY += 6;
                         break;
 
                     case TO_BE_COMPLETED:
-                        familyLineTypeSymbolPathData = "M" + (topRight - 8.5) + " " + (y + 3) + "l6 6m-6 0l6-6";
-                        familyLineTypeSymbolClassName += "-to-be-completed";
+                        familyLineTypeSymbolClassName = "family-line-to-be-completed";
+                        familyLineTypeSymbolPathData = "l6 6m-6 0l6-6";
+                        symbolX -= 8.5;
+                        symbolY += 3;
                         break;
                 }
 
                 if (familyLineTypeSymbolPathData != null) {
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", familyLineTypeSymbolPathData);
-                    writer.writeAttribute("class", familyLineTypeSymbolClassName);
-                    writer.writeEndElement();
+                    lineWriter.startLine(familyLineTypeSymbolClassName, null, null, null);
+                    lineWriter.append('M').append(symbolX).append(' ').append(symbolY).append(familyLineTypeSymbolPathData);
+                    lineWriter.endLine();
                 }
             }
         }
@@ -460,21 +473,13 @@ public class SvgExporter {
 
                 String className = "family-line";
 
-                StringBuilder verticalPathData = new StringBuilder();
-                verticalPathData.append("M");
-                verticalPathData.append(position.x() - shiftX);
-                verticalPathData.append(" ");
-                verticalPathData.append(shiftY - position.y());
-                verticalPathData.append("v");
-                verticalPathData.append(position.y() - bottomRect.y());
-
-                StringBuilder horizontalPathData = new StringBuilder();
-                horizontalPathData.append("M");
-                horizontalPathData.append(bottomRect.x() - shiftX);
-                horizontalPathData.append(" ");
-                horizontalPathData.append(shiftY - bottomRect.y());
-                horizontalPathData.append("h");
-                horizontalPathData.append(bottomRect.width());
+                int verticalX = position.x() - shiftX;
+                int verticalY = shiftY - position.y();
+                int verticalLength = position.y() - bottomRect.y();
+
+                int horizontalX = bottomRect.x() - shiftX;
+                int horizontalY = shiftY - bottomRect.y();
+                int horizontalLength = bottomRect.width();
 
                 if (highlightMode != HighlightMode.NONE) {
 
@@ -482,44 +487,23 @@ public class SvgExporter {
 
                     for (String highlightKey : individual.highlightKeySet()) {
 
-                        StringBuilder style = new StringBuilder();
-                        style.append("stroke:");
-                        style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                        if (i > 0) {
-                            style.append(";stroke-dasharray:");
-                            style.append(5 * (highlightKeysCount - i));
-                            style.append(",");
-                            style.append(5 * i);
-                            style.append(";stroke-linecap:butt;");
-                            style.append(";fill:none;");
-                        }
+                        String highlightClassName = renderContext.getHighlightClassName(highlightKey, i, highlightKeysCount);
 
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", verticalPathData.toString());
-                        writer.writeAttribute("class", className + " highlighted " + familyId);
-                        writer.writeAttribute("style", style.toString());
-                        writer.writeEndElement();
+                        lineWriter.startLine(className, " highlighted ", familyId, highlightClassName);
+                        appendLine(lineWriter, verticalX, verticalY, 'v', verticalLength);
 
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", horizontalPathData.toString());
-                        writer.writeAttribute("class", className + " highlighted " + familyId);
-                        writer.writeAttribute("style", style.toString());
-                        writer.writeEndElement();
+                        lineWriter.startLine(className, " highlighted ", familyId, highlightClassName);
+                        appendLine(lineWriter, horizontalX, horizontalY, 'h', horizontalLength);
 
                         i++;
                     }
 
                 } else {
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", verticalPathData.toString());
-                    writer.writeAttribute("class", className + " " + familyId);
-                    writer.writeEndElement();
+                    lineWriter.startLine(className, " ", familyId, null);
+                    appendLine(lineWriter, verticalX, verticalY, 'v', verticalLength);
 
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", horizontalPathData.toString());
-                    writer.writeAttribute("class", className + " " + familyId);
-                    writer.writeEndElement();
+                    lineWriter.startLine(className, " ", familyId, null);
+                    appendLine(lineWriter, horizontalX, horizontalY, 'h', horizontalLength);
                 }
             }
         }
@@ -528,58 +512,14 @@ public class SvgExporter {
 
         for (PedigreeLink pedigreeLink : family.pedigreeLinkList()) {
 
-            Position individualPosition = pedigreeLink.position();
-
-            if (individualPosition == null) {
+            if (pedigreeLink.position() == null) {
                 continue;
             }
 
-            StringBuilder pathData = new StringBuilder();
-
-            boolean isEmpty = true;
-
-            pathData.append("M");
-            pathData.append(individualPosition.x() - shiftX);
-            pathData.append(" ");
-            pathData.append(shiftY - individualPosition.y());
-
-            if (pedigreeLink.isParent()) {
-                if (topRect != null) {
-                    pathData.append("v");
-                    pathData.append(individualPosition.y() - topRect.y());
-                    isEmpty = false;
-                }
-
-            } else {
-                if (bottomRect != null) {
-                    if (pedigreeLink.twinPosition() != null) {
-                        pathData.append("L");
-                        pathData.append(pedigreeLink.twinPosition().x() - shiftX);
-                        pathData.append(" ");
-                        pathData.append(shiftY - bottomRect.y());
-
-                    } else {
-                        pathData.append("v");
-                        pathData.append(individualPosition.y() - bottomRect.y());
-                    }
-                    isEmpty = false;
-
-                } else if (topRect != null) {
-                    if (pedigreeLink.twinPosition() != null) {
-                        pathData.append("L");
-                        pathData.append(pedigreeLink.twinPosition().x() - shiftX);
-                        pathData.append(" ");
-                        pathData.append(shiftY - topRect.y());
-
-                    } else {
-                        pathData.append("v");
-                        pathData.append(individualPosition.y() - topRect.y());
-                    }
-                    isEmpty = false;
-                }
-            }
+            // children are connected to the bottom line, if present
+            Rect targetRect = (pedigreeLink.isParent() || bottomRect == null) ? topRect : bottomRect;
 
-            if (!isEmpty) {
+            if (targetRect != null) {
 
                 if (highlightMode != HighlightMode.NONE) {
 
@@ -593,63 +533,94 @@ public class SvgExporter {
                         int i = 0;
 
                         for (String highlightKey : child.highlightKeySet()) {
-
-                            StringBuilder style = new StringBuilder();
-                            style.append("stroke:");
-                            style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                            if (i > 0) {
-                                style.append(";stroke-dasharray:");
-                                style.append(5 * (childHighlightKeysCount - i));
-                                style.append(",");
-                                style.append(5 * i);
-                                style.append(";stroke-linecap:butt;");
-                                style.append(";fill:none;");
-                            }
-
-                            writer.writeStartElement("path");
-                            writer.writeAttribute("d", pathData.toString());
-                            writer.writeAttribute("class", className + " highlighted " + familyId);
-                            writer.writeAttribute("style", style.toString());
-                            writer.writeEndElement();
-
+                            lineWriter.startLine(className, " highlighted ", familyId,
+                                    renderContext.getHighlightClassName(highlightKey, i, childHighlightKeysCount));
+                            appendPedigreeLink(lineWriter, pedigreeLink, targetRect, shiftX, shiftY);
                             i++;
                         }
 
                     } else {
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", pathData.toString());
-                        writer.writeAttribute("class", className + " unhighlighted " + familyId);
-                        writer.writeEndElement();
+                        lineWriter.startLine(className, " unhighlighted ", familyId, null);
+                        appendPedigreeLink(lineWriter, pedigreeLink, targetRect, shiftX, shiftY);
                     }
 
                 } else {
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", pathData.toString());
 
                     switch (pedigreeLink.pedigreeLinkType()) {
 
                         case PARENT:
-                            writer.writeAttribute("class", className + " parent " + familyId);
+                            lineWriter.startLine(className, " parent ", familyId, null);
                             break;
 
                         case ADOPTED:
-                            writer.writeAttribute("class", className + " adopted " + familyId);
+                            lineWriter.startLine(className, " adopted ", familyId, null);
                             break;
 
                         default:
-                            writer.writeAttribute("class", className + " biological " + familyId);
+                            lineWriter.startLine(className, " biological ", familyId, null);
                             break;
                     }
 
-                    writer.writeEndElement();
+                    appendPedigreeLink(lineWriter, pedigreeLink, targetRect, shiftX, shiftY);
                 }
             }
         }
     }
 
-    private static void renderIndividual(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    private static void renderFamilyLabel(SvgWriter writer, Family family, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
+
+        String label = family.label();
+
+        if (label == null || !renderContext.isTextRendered()) {
+            return;
+        }
+
+        Rect topRect = Rect.fromBoundaryRect(family.topBoundaryRect());
+
+        int y = shiftY - topRect.y();
+        int labelWidthInPixels = renderContext.getGeneratingOptions().getMainTextMetrics().stringWidth(label);
+        double centerX = topRect.x() - shiftX + topRect.width() / 2.0;
+        int fontSize = GeneratingOptions.MAIN_FONT_SIZE_IN_PIXELS;
+        double textPadding = (GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - fontSize) / 2.0;
+
+        writer.writeStartElement("rect");
+        writer.writeAttribute("x", centerX - labelWidthInPixels / 2.0);
+        writer.writeAttribute("y", y - 1.3 * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
+        writer.writeAttribute("width", labelWidthInPixels);
+        writer.writeAttribute("height", GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
+        writer.writeAttribute("class", "family-label");
+        writer.writeEndElement();
+
+        writer.writeStartElement("text");
+        writer.writeAttribute("x", centerX);
+        writer.writeAttribute("y", y - 0.3 * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - textPadding);
+        writer.writeAttribute("class", "family-label");
+        writer.writeCharacters(label);
+        writer.writeEndElement();
+    }
+
+    // completes the started line
+    private static void appendPedigreeLink(LineWriter lineWriter, PedigreeLink pedigreeLink, Rect targetRect,
+            int shiftX, int shiftY) throws IOException {
+
+        Position individualPosition = pedigreeLink.position();
+        Position twinPosition = pedigreeLink.twinPosition();
+
+        lineWriter.append('M').append(individualPosition.x() - shiftX).append(' ').append(shiftY - individualPosition.y());
+
+        if (!pedigreeLink.isParent() && twinPosition != null) {
+            lineWriter.append('L').append(twinPosition.x() - shiftX).append(' ').append(shiftY - targetRect.y());
+
+        } else {
+            lineWriter.append('v').append(individualPosition.y() - targetRect.y());
+        }
+
+        lineWriter.endLine();
+    }
+
+    static void renderIndividual(SvgWriter writer, Individual individual, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
         writer.writeStartElement("g");
         writer.writeAttribute("id", individual.id());
@@ -660,25 +631,24 @@ public class SvgExporter {
             writer.writeAttribute("data-target-id", hyperlink.id());
         }
 
-        renderIndividualDates(writer, individual, shiftX, shiftY, generatingOptions);
-        renderIndividualSymbol(writer, individual, shiftX, shiftY, generatingOptions);
-        renderIndividualAge(writer, individual, shiftX, shiftY, generatingOptions);
+        if (renderContext.isTextRendered()) {
+            renderIndividualDates(writer, individual, shiftX, shiftY, renderContext);
+        }
 
-        if (hyperlink != null) {
-            renderActiveArea(writer, individual, shiftX, shiftY, generatingOptions);
-            renderIndividualLabel(writer, individual, shiftX, shiftY, generatingOptions);
+        renderIndividualSymbol(writer, individual, shiftX, shiftY, renderContext);
+        renderIndividualAge(writer, individual, shiftX, shiftY, renderContext);
 
-        } else {
-            renderIndividualLabel(writer, individual, shiftX, shiftY, generatingOptions);
-            renderActiveArea(writer, individual, shiftX, shiftY, generatingOptions);
+        if (renderContext.isTextRendered()) {
+            renderIndividualLabel(writer, individual, shiftX, shiftY, renderContext);
         }
 
         writer.writeEndElement();
     }
 
-    private static void renderIndividualDates(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    private static void renderIndividualDates(SvgWriter writer, Individual individual, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
+        GeneratingOptions generatingOptions = renderContext.getGeneratingOptions();
         List<String> labelList = new ArrayList<>();
         DisplayStyle displayStyle = generatingOptions.getDisplayStyle();
 
@@ -716,7 +686,7 @@ public class SvgExporter {
             if (death != null && death.hasDate()) {
                 String deathLabel = death.date().format(dateFormatter);
                 if (!hasBirth) {
-                    deathLabel = generatingOptions.getResourceBundle().getString("deathAbbrev") + " " + deathLabel;
+                    deathLabel = renderContext.getDeathAbbrev() + " " + deathLabel;
                 }
                 dateList.add(deathLabel);
             }
@@ -733,7 +703,7 @@ public class SvgExporter {
 
         Rect rect = Rect.fromBoundaryRect(individual.boundaryRect());
 
-        int fontSize = generatingOptions.getMainFontMetrics().getFont().getSize();
+        int fontSize = GeneratingOptions.MAIN_FONT_SIZE_IN_PIXELS;
         double textPadding = (GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - fontSize) / 2.0;
 
         int baseTopY = shiftY - rect.y() + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS / 2;
@@ -741,22 +711,22 @@ public class SvgExporter {
         for (int i = 0; i < labelList.size(); i++) {
 
             String label = labelList.get(i);
-            int labelWidth = generatingOptions.getMainFontMetrics().stringWidth(label);
+            int labelWidth = generatingOptions.getMainTextMetrics().stringWidth(label);
 
             int topY = baseTopY + i * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS;
 
             writer.writeStartElement("rect");
-            writer.writeAttribute("x", String.valueOf(individual.position().x() - labelWidth / 2 - shiftX));
-            writer.writeAttribute("y", String.valueOf(topY));
-            writer.writeAttribute("width", String.valueOf(labelWidth));
-            writer.writeAttribute("height", String.valueOf(GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
+            writer.writeAttribute("x", individual.position().x() - labelWidth / 2 - shiftX);
+            writer.writeAttribute("y", topY);
+            writer.writeAttribute("width", labelWidth);
+            writer.writeAttribute("height", GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
             writer.writeAttribute("class", "individual-label");
             writer.writeEndElement();
 
             writer.writeStartElement("text");
-            writer.writeAttribute("x", String.valueOf(individual.position().x() - shiftX));
+            writer.writeAttribute("x", individual.position().x() - shiftX);
             writer.writeAttribute("y",
-                    String.valueOf(topY - textPadding + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
+                    topY - textPadding + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
             writer.writeAttribute("class", "individual-label");
 
             writer.writeCharacters(labelList.get(i));
@@ -764,13 +734,16 @@ public class SvgExporter {
         }
     }
 
-    private static void renderIndividualSymbol(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    private static void renderIndividualSymbol(SvgWriter writer, Individual individual, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
         Position position = individual.position();
 
-        HighlightMode highlightMode = HighlightMode.of(Integer.parseInt(
-                generatingOptions.getAdditionalOptionsMap().getOrDefault("highlightMode", "0")));
+        int x = position.x() - shiftX;
+        int y = shiftY - position.y();
+
+        HighlightMode highlightMode = renderContext.getHighlightMode();
+        SvgGlyphSet glyphSet = renderContext.getGlyphSet();
 
         switch (individual.gender()) {
 
@@ -782,41 +755,21 @@ public class SvgExporter {
 
                     for (String highlightKey : individual.highlightKeySet()) {
 
-                        StringBuilder data = new StringBuilder();
-                        data.append("M");
-                        data.append(String.valueOf(position.x() - shiftX - 9));
-                        data.append(" ");
-                        data.append(String.valueOf(shiftY - position.y() - 9));
-                        data.append("h18v18h-18z");
-
-                        StringBuilder style = new StringBuilder();
-                        style.append("stroke:");
-                        style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                        if (i > 0) {
-                            style.append(";stroke-dasharray:");
-                            style.append(5 * (highlightKeysCount - i));
-                            style.append(",");
-                            style.append(5 * i);
-                            style.append(";stroke-linecap:butt;");
-                            style.append(";fill:none;");
-                        }
-
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", data.toString());
-                        writer.writeAttribute("class", "individual-symbol highlighted");
-                        writer.writeAttribute("style", style.toString());
+                        glyphSet.writeStartUseElement(writer, Glyph.HIGHLIGHTED_SQUARE, x, y);
+                        writeClassAttribute(writer, "individual-symbol", " highlighted", "",
+                                renderContext.getHighlightClassName(highlightKey, i, highlightKeysCount));
                         writer.writeEndElement();
                         i++;
                     }
 
                 } else {
                     writer.writeStartElement("rect");
-                    writer.writeAttribute("x", String.valueOf(position.x() - shiftX - 9));
-                    writer.writeAttribute("y", String.valueOf(shiftY - position.y() - 9));
-                    writer.writeAttribute("width", "18");
-                    writer.writeAttribute("height", "18");
-                    writer.writeAttribute("class", "individual-symbol" + (highlightMode == HighlightMode.MATERNAL ? " unhighlighted" : ""));
+                    writer.writeAttribute("x", x - 9);
+                    writer.writeAttribute("y", y - 9);
+                    writer.writeAttribute("width", 18);
+                    writer.writeAttribute("height", 18);
+                    writer.writeAttribute("class", (highlightMode == HighlightMode.MATERNAL)
+                            ? "individual-symbol unhighlighted" : "individual-symbol");
                     writer.writeEndElement();
                 }
 
@@ -832,40 +785,20 @@ public class SvgExporter {
 
                     for (String highlightKey : individual.highlightKeySet()) {
 
-                        StringBuilder data = new StringBuilder();
-                        data.append("M");
-                        data.append(String.valueOf(position.x() - shiftX));
-                        data.append(" ");
-                        data.append(String.valueOf(shiftY - position.y()));
-                        data.append("m-9 0a9 9 0 1 0 18 0a9 9 0 1 0 -18 0");
-
-                        StringBuilder style = new StringBuilder();
-                        style.append("stroke:");
-                        style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                        if (i > 0) {
-                            style.append(";stroke-dasharray:");
-                            style.append(5 * (highlightKeysCount - i));
-                            style.append(",");
-                            style.append(5 * i);
-                            style.append(";stroke-linecap:butt;");
-                            style.append(";fill:none;");
-                        }
-
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", data.toString());
-                        writer.writeAttribute("class", "individual-symbol highlighted");
-                        writer.writeAttribute("style", style.toString());
+                        glyphSet.writeStartUseElement(writer, Glyph.HIGHLIGHTED_CIRCLE, x, y);
+                        writeClassAttribute(writer, "individual-symbol", " highlighted", "",
+                                renderContext.getHighlightClassName(highlightKey, i, highlightKeysCount));
                         writer.writeEndElement();
                         i++;
                     }
 
                 } else {
                     writer.writeStartElement("circle");
-                    writer.writeAttribute("cx", String.valueOf(position.x() - shiftX));
-                    writer.writeAttribute("cy", String.valueOf(shiftY - position.y()));
-                    writer.writeAttribute("r", "9");
-                    writer.writeAttribute("class", "individual-symbol" + (highlightMode == HighlightMode.PATERNAL ? " unhighlighted" : ""));
+                    writer.writeAttribute("cx", x);
+                    writer.writeAttribute("cy", y);
+                    writer.writeAttribute("r", 9);
+                    writer.writeAttribute("class", (highlightMode == HighlightMode.PATERNAL)
+                            ? "individual-symbol unhighlighted" : "individual-symbol");
                     writer.writeEndElement();
                 }
 
@@ -874,56 +807,42 @@ public class SvgExporter {
 
             case UNKNOWN: {
                 writer.writeStartElement("rect");
-                writer.writeAttribute("x", String.valueOf(position.x() - shiftX - 9));
-                writer.writeAttribute("y", String.valueOf(shiftY - position.y() - 9));
-                writer.writeAttribute("width", "18");
-                writer.writeAttribute("height", "18");
+                writer.writeAttribute("x", x - 9);
+                writer.writeAttribute("y", y - 9);
+                writer.writeAttribute("width", 18);
+                writer.writeAttribute("height", 18);
                 writer.writeAttribute("class", "individual-symbol-background");
                 writer.writeEndElement();
 
-                writer.writeStartElement("text");
-                writer.writeAttribute("x", String.valueOf(position.x() - shiftX));
-                writer.writeAttribute("y", String.valueOf(shiftY - position.y() + 4));
-                writer.writeAttribute("class", "individual-symbol");
-                writer.writeCharacters("?");
-                writer.writeEndElement();
+                if (renderContext.isTextRendered()) {
+                    writer.writeStartElement("text");
+                    writer.writeAttribute("x", x);
+                    writer.writeAttribute("y", y + 4);
+                    writer.writeAttribute("class", "individual-symbol");
+                    writer.writeCharacters("?");
+                    writer.writeEndElement();
+                }
 
                 break;
             }
         }
     }
 
-    private static void renderIndividualAge(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    private static void renderIndividualAge(SvgWriter writer, Individual individual, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
+        GeneratingOptions generatingOptions = renderContext.getGeneratingOptions();
         Position position = individual.position();
 
         if (individual.isDeceased()) {
 
-            HighlightMode highlightMode = HighlightMode.of(Integer.parseInt(
-                    generatingOptions.getAdditionalOptionsMap().getOrDefault("highlightMode", "0")));
-
-            float delta = (individual.gender() == Gender.MALE) ? 9 : 6.4f;
-
-            StringBuilder dataBuilder = new StringBuilder();
-            dataBuilder.append("M");
-            dataBuilder.append(position.x() - shiftX - delta);
-            dataBuilder.append(" ");
-            dataBuilder.append(shiftY - position.y() - delta);
-            dataBuilder.append("L");
-            dataBuilder.append(position.x() - shiftX + delta);
-            dataBuilder.append(" ");
-            dataBuilder.append(shiftY - position.y() + delta);
-            dataBuilder.append("M");
-            dataBuilder.append(position.x() - shiftX - delta);
-            dataBuilder.append(" ");
-            dataBuilder.append(shiftY - position.y() + delta);
-            dataBuilder.append("L");
-            dataBuilder.append(position.x() - shiftX + delta);
-            dataBuilder.append(" ");
-            dataBuilder.append(shiftY - position.y() - delta);
-
-            String className = "individual-deceased";
+            HighlightMode highlightMode = renderContext.getHighlightMode();
+            SvgGlyphSet glyphSet = renderContext.getGlyphSet();
+
+            Glyph cross = (individual.gender() == Gender.MALE) ? Glyph.LARGE_CROSS : Glyph.SMALL_CROSS;
+
+            int x = position.x() - shiftX;
+            int y = shiftY - position.y();
 
             if (highlightMode != HighlightMode.NONE) {
 
@@ -937,39 +856,23 @@ public class SvgExporter {
 
                     for (String highlightKey : individual.highlightKeySet()) {
 
-                        StringBuilder style = new StringBuilder();
-                        style.append("stroke:");
-                        style.append(highlightKey.equals("n/a") ? "black" : highlightKey);
-
-                        if (i > 0) {
-                            style.append(";stroke-dasharray:");
-                            style.append(5 * (highlightKeysCount - i));
-                            style.append(",");
-                            style.append(5 * i);
-                            style.append(";stroke-linecap:butt;");
-                            style.append(";fill:none;");
-                        }
-
-                        writer.writeStartElement("path");
-                        writer.writeAttribute("d", dataBuilder.toString());
-                        writer.writeAttribute("class", className + " highlighted");
-                        writer.writeAttribute("style", style.toString());
+                        glyphSet.writeStartUseElement(writer, cross, x, y);
+                        writeClassAttribute(writer, "individual-deceased", " highlighted", "",
+                                renderContext.getHighlightClassName(highlightKey, i, highlightKeysCount));
                         writer.writeEndElement();
 
                         i++;
                     }
 
                 } else {
-                    writer.writeStartElement("path");
-                    writer.writeAttribute("d", dataBuilder.toString());
-                    writer.writeAttribute("class", className + " unhighlighted");
+                    glyphSet.writeStartUseElement(writer, cross, x, y);
+                    writer.writeAttribute("class", "individual-deceased unhighlighted");
                     writer.writeEndElement();
                 }
 
             } else {
-                writer.writeStartElement("path");
-                writer.writeAttribute("d", dataBuilder.toString());
-                writer.writeAttribute("class", className);
+                glyphSet.writeStartUseElement(writer, cross, x, y);
+                writer.writeAttribute("class", "individual-deceased");
                 writer.writeEndElement();
             }
         }
@@ -983,38 +886,39 @@ public class SvgExporter {
             age = null;
         }
 
-        if (age != null) {
+        if (age != null && renderContext.isTextRendered()) {
 
             // smaller font requires smaller metrics
-            double ageWidth = generatingOptions.getAgeFontMetrics().stringWidth(age);
-            int fontSize = generatingOptions.getAgeFontMetrics().getFont().getSize();
+            double ageWidth = generatingOptions.getAgeTextMetrics().stringWidth(age);
+            int fontSize = GeneratingOptions.AGE_FONT_SIZE_IN_PIXELS;
 
             writer.writeStartElement("rect");
-            writer.writeAttribute("x", String.valueOf(position.x() - ageWidth / 2.0 - shiftX));
-            writer.writeAttribute("y", String.valueOf(shiftY - position.y() - fontSize / 2.0));
-            writer.writeAttribute("width", String.valueOf(ageWidth));
-            writer.writeAttribute("height", String.valueOf(fontSize));
+            writer.writeAttribute("x", position.x() - ageWidth / 2.0 - shiftX);
+            writer.writeAttribute("y", shiftY - position.y() - fontSize / 2.0);
+            writer.writeAttribute("width", ageWidth);
+            writer.writeAttribute("height", fontSize);
             writer.writeAttribute("class", "individual-age");
             writer.writeEndElement();
 
             writer.writeStartElement("text");
-            writer.writeAttribute("x", String.valueOf(position.x() - shiftX));
-            writer.writeAttribute("y", String.valueOf(shiftY - position.y() + (0.7 * fontSize / 2.0)));
+            writer.writeAttribute("x", position.x() - shiftX);
+            writer.writeAttribute("y", shiftY - position.y() + (0.7 * fontSize / 2.0));
             writer.writeAttribute("class", "individual-age");
             writer.writeCharacters(age);
             writer.writeEndElement();
         }
     }
 
-    private static void renderIndividualLabel(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
+    private static void renderIndividualLabel(SvgWriter writer, Individual individual, int shiftX, int shiftY,
+            RenderContext renderContext) throws IOException {
 
+        GeneratingOptions generatingOptions = renderContext.getGeneratingOptions();
         Name name = individual.name();
 
         if (name != null) {
 
             Rect rect = Rect.fromBoundaryRect(individual.boundaryRect());
-            int fontSize = generatingOptions.getMainFontMetrics().getFont().getSize();
+            int fontSize = GeneratingOptions.MAIN_FONT_SIZE_IN_PIXELS;
             double textPadding = (GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS - fontSize) / 2.0;
 
             String firstName = name.first();
@@ -1037,8 +941,8 @@ public class SvgExporter {
                 nameList.add("(" + lastName2 + ")");
             }
 
-            List<String> wrappedLineList = TextWrapUtil.getWrappedLineList(String.join(" ", nameList),
-                    rect.width() - 2 * 8, generatingOptions.getMainFontMetrics());
+            List<String> wrappedLineList = generatingOptions.getLineWrapCache().getWrappedLineList(
+                    String.join(" ", nameList), rect.width() - 2 * 8, generatingOptions.getMainTextMetrics());
 
             int baseTopY = shiftY - individual.position().y() + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS;
 
@@ -1047,15 +951,15 @@ public class SvgExporter {
             for (int i = 0; i < wrappedLineList.size(); i++) {
 
                 String line = wrappedLineList.get(i);
-                double lineWidth = generatingOptions.getMainFontMetrics().stringWidth(line);
+                double lineWidth = generatingOptions.getMainTextMetrics().stringWidth(line);
 
                 int topY = baseTopY + i * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS;
 
                 writer.writeStartElement("rect");
-                writer.writeAttribute("x", String.valueOf(individual.position().x() - lineWidth / 2 - shiftX));
-                writer.writeAttribute("y", String.valueOf(topY));
-                writer.writeAttribute("width", String.valueOf(lineWidth));
-                writer.writeAttribute("height", String.valueOf(GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
+                writer.writeAttribute("x", individual.position().x() - lineWidth / 2 - shiftX);
+                writer.writeAttribute("y", topY);
+                writer.writeAttribute("width", lineWidth);
+                writer.writeAttribute("height", GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
                 writer.writeAttribute("class", "individual-label");
                 writer.writeEndElement();
             }
@@ -1065,9 +969,9 @@ public class SvgExporter {
                 int topY = baseTopY + i * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS;
 
                 writer.writeStartElement("text");
-                writer.writeAttribute("x", String.valueOf(individual.position().x() - shiftX));
+                writer.writeAttribute("x", individual.position().x() - shiftX);
                 writer.writeAttribute("y",
-                        String.valueOf(topY - textPadding + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS));
+                        topY - textPadding + GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS);
                 writer.writeAttribute("class", isHyperlink ? "individual-label-hyperlink" : "individual-label");
 
                 writer.writeCharacters(wrappedLineList.get(i));
@@ -1076,40 +980,18 @@ public class SvgExporter {
         }
     }
 
-    private static void renderActiveArea(XMLStreamWriter writer, Individual individual, int shiftX, int shiftY,
-            GeneratingOptions generatingOptions) throws XMLStreamException {
-
-        int boxSize = 8;
-
-        Rect rect = Rect.fromBoundaryRect(individual.boundaryRect());
-
-        writer.writeStartElement("rect");
-        writer.writeAttribute("id", individual.id() + "-bb");
-        writer.writeAttribute("x", String.valueOf(rect.x() - shiftX + boxSize));
-        writer.writeAttribute("y", String.valueOf(shiftY - rect.y() + boxSize));
-        writer.writeAttribute("width", String.valueOf(rect.width() - 2 * boxSize));
-        writer.writeAttribute("height", String.valueOf(rect.height() - 2 * boxSize));
-        writer.writeAttribute("class", "individual-active-area");
-        writer.writeEndElement();
+    // completes the started line
+    private static void appendLine(LineWriter lineWriter, int x, int y, char command, int value) throws IOException {
+        lineWriter.append('M').append(x).append(' ').append(y).append(command).append(value);
+        lineWriter.endLine();
     }
 
-    private static String getLabelStyleAttribute(LabelStyle labelStyle) {
-
-        StringBuilder style = new StringBuilder();
-
-        style.append("fill: ");
-        style.append(labelStyle.fillColor().toHex());
-        style.append(";stroke: ");
-        style.append(labelStyle.border().color().toHex());
-        style.append(";stroke-width: ");
-        style.append(getStrokeWidth(labelStyle.border().size(), 3.0));
-
-        return style.toString();
-    }
+    private static void writeClassAttribute(SvgWriter writer, String className, String modifier, String familyId,
+            String styleClassName) throws IOException {
 
-    private static String getStrokeWidth(Size size, double defaultStrokeWidth) {
-        double factor = STROKE_WIDTH_SCALE_FACTOR_MAP.getOrDefault(size, 1.0);
-        return String.valueOf(defaultStrokeWidth * factor);
+        writer.writeStartAttribute("class");
+        writer.append(className).append(modifier).append(familyId).append(' ').append(styleClassName);
+        writer.writeEndAttribute();
     }
 
     private static int getLabelBaseX(int rectX, int width, LabelStyle labelStyle) {
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter;
+
+import in.drifted.tools.genopro.core.model.Family;
+import in.drifted.tools.genopro.core.model.GenoMap;
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.core.model.Individual;
+import in.drifted.tools.genopro.core.model.Label;
+import in.drifted.tools.genopro.core.model.PedigreeLink;
+import in.drifted.tools.genopro.core.model.Position;
+import in.drifted.tools.genopro.core.model.Rect;
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
+import in.drifted.tools.genopro.webapp.exporter.event.GenoMapRenderEvent;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.ByteSvgWriter;
+import in.drifted.tools.genopro.webapp.exporter.util.FingerprintUtil;
+import in.drifted.tools.genopro.webapp.exporter.util.JsonUtil;
+import in.drifted.tools.genopro.webapp.exporter.util.QuadTree;
+import in.drifted.tools.genopro.webapp.exporter.util.SvgWriter;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits large genomaps into a quadtree of tiles. The genomap SVG becomes a shell with empty layers, each tile is
+ * written as a separate SVG with the labels, families and individuals anchored in its area, and the tile manifest
+ * lists the tile bounds (covering all the tile content) so the viewer can load just the tiles overlapping the viewport.
+ * Each tile carries the style rules and clip paths it uses. Tile file names contain the genomap fingerprint, so a cached
+ * manifest always refers to the tiles of the same partitioning, never to re-partitioned tiles of a later export.
+ */
+public class TiledSvgExporter {
+
+    private static final int MAX_DEPTH = 8;
+
+    // rough allowance for the texts drawn around the individual and family rects
+    private static final int TEXT_PADDING = 3 * GeneratingOptions.MAIN_LINE_HEIGHT_IN_PIXELS;
+
+    private static final String[] LAYERS = {"labels", "families", "individuals"};
+
+    // hex digits of the genomap fingerprint used in the tile file names
+    private static final int REVISION_LENGTH = 16;
+
+    /**
+     * Partitions the genomap into tiles if it has more elements than the tile capacity. The partitioning measures
+     * family labels, so it is done once per export and the layout is passed to everything listing or writing tiles.
+     *
+     * @param tileCapacity the maximum number of elements per tile, 0 means no tiling
+     */
+    public static TileLayout getTileLayout(GenoMapData genoMapData, int tileCapacity,
+            GeneratingOptions generatingOptions) {
+
+        if (tileCapacity > 0) {
+
+            List<TileItem> tileItemList = getTileItemList(genoMapData, generatingOptions);
+
+            if (tileItemList.size() > tileCapacity) {
+                String revision = FingerprintUtil.getFingerprint(genoMapData, generatingOptions).substring(0, REVISION_LENGTH);
+                return new TileLayout(genoMapData.genoMap(), revision,
+                        getTileList(genoMapData, tileItemList, tileCapacity));
+            }
+        }
+
+        return new TileLayout(genoMapData.genoMap(), null, List.of());
+    }
+
+    /**
+     * @return the number of SVG elements written into the tiles and the shell
+     */
+    public static long export(OutputSink outputSink, GenoMapData genoMapData, TileLayout tileLayout,
+            GeneratingOptions generatingOptions) throws IOException {
+
+        GenoMapRenderEvent event = ExportEvents.isEnabled() ? GenoMapRenderEvent.start() : null;
+
+        GenoMap genoMap = genoMapData.genoMap();
+        List<Tile> tileList = tileLayout.tileList;
+
+        RenderContext renderContext = RenderContext.compile(generatingOptions);
+
+        Map<String, Individual> individualMap = new HashMap<>();
+        for (Individual individual : genoMapData.individualSet()) {
+            individualMap.put(individual.id(), individual);
+        }
+
+        long elementCount = 0;
+
+        for (int i = 0; i < tileList.size(); i++) {
+            try (OutputStream outputStream = outputSink.newOutputStream(getTileFileName(genoMap, tileLayout.revision, i))) {
+                renderContext.startDocument(genoMap.id() + "-t" + i + "-");
+                elementCount += exportTile(tileList.get(i), genoMap, individualMap, outputStream, renderContext);
+            }
+        }
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(getManifestFileName(genoMap))) {
+            writer.append(getManifestJson(genoMap, tileLayout.revision, tileList));
+        }
+
+        try (OutputStream outputStream = outputSink.newOutputStream(genoMap.id() + ".svg")) {
+            elementCount += exportShell(genoMapData, outputStream);
+        }
+
+        if (event != null) {
+            event.finish(genoMapData, "tiled", elementCount);
+        }
+
+        return elementCount;
+    }
+
+    /**
+     * The genomap SVG without any content, just the empty layers the tiles are loaded into.
+     *
+     * @return the number of written SVG elements
+     */
+    public static long exportShell(GenoMapData genoMapData, OutputStream outputStream) throws IOException {
+
+        GenoMap genoMap = genoMapData.genoMap();
+
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream);
+        writer.writeStartDocument();
+        SvgExporter.writeSvgStartElement(writer, genoMap);
+        writer.writeAttribute("data-tiles", getManifestFileName(genoMap));
+
+        for (String layer : LAYERS) {
+            writer.writeStartElement("g");
+            writer.writeAttribute("data-layer", layer);
+            writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+
+        return writer.getElementCount();
+    }
+
+    /**
+     * @return true if the file is one of the tiles or the tile manifest of the genomap
+     */
+    public static boolean isTileFile(String fileName, GenoMap genoMap) {
+
+        if (fileName.equals(getManifestFileName(genoMap))) {
+            return true;
+        }
+
+        String prefix = genoMap.id() + "-tile";
+
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(".svg")) {
+            return false;
+        }
+
+        // the tile index followed by the revision
+        String suffix = fileName.substring(prefix.length(), fileName.length() - 4);
+        int separatorIndex = suffix.indexOf('-');
+
+        if (separatorIndex < 1 || suffix.length() - separatorIndex - 1 != REVISION_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < suffix.length(); i++) {
+            char c = suffix.charAt(i);
+            if ((i < separatorIndex && !Character.isDigit(c))
+                    || (i > separatorIndex && Character.digit(c, 16) < 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long exportTile(Tile tile, GenoMap genoMap, Map<String, Individual> individualMap,
+            OutputStream outputStream, RenderContext renderContext) throws IOException {
+
+        int shiftX = SvgExporter.getShiftX(genoMap);
+        int shiftY = SvgExporter.getShiftY(genoMap);
+
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream);
+        writer.writeStartDocument();
+        writer.writeStartElement("svg");
+        writer.writeAttribute("xmlns", "http://www.w3.org/2000/svg");
+        writer.writeAttribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
+
+        for (int layer = 0; layer < LAYERS.length; layer++) {
+
+            writer.writeStartElement("g");
+            writer.writeAttribute("data-layer", LAYERS[layer]);
+
+            List<Family> familyList = new ArrayList<>();
+
+            for (TileItem tileItem : tile.itemList()) {
+
+                if (tileItem.layer() == layer) {
+
+                    if (tileItem.element() instanceof Label label) {
+                        SvgExporter.renderLabel(writer, label, shiftX, shiftY, renderContext);
+
+                    } else if (tileItem.element() instanceof Family family) {
+                        familyList.add(family);
+
+                    } else if (tileItem.element() instanceof Individual individual) {
+                        SvgExporter.renderIndividual(writer, individual, shiftX, shiftY, renderContext);
+                    }
+                }
+            }
+
+            SvgExporter.renderFamilies(writer, familyList, individualMap, shiftX, shiftY, renderContext);
+
+            // class names are shared by all tiles, the rules and glyphs are moved into the shell along with the last layer
+            if (layer == LAYERS.length - 1) {
+                renderContext.writeDocumentDefinitions(writer, genoMap.id());
+            }
+
+            writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+
+        return writer.getElementCount();
+    }
+
+    /**
+     * {"t":[{"f":tile file name,"b":[x,y,width,height]},...],"i":{individual id:tile index,...}}
+     */
+    private static String getManifestJson(GenoMap genoMap, String revision, List<Tile> tileList) {
+
+        StringBuilder json = new StringBuilder("{\"t\":[");
+        StringBuilder individualJson = new StringBuilder("\"i\":{");
+
+        for (int i = 0; i < tileList.size(); i++) {
+
+            Rectangle2D bounds = tileList.get(i).bounds();
+
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"f\":");
+            JsonUtil.appendString(json, getTileFileName(genoMap, revision, i));
+            json.append(",\"b\":[");
+            json.append((int) Math.floor(bounds.getX())).append(',');
+            json.append((int) Math.floor(bounds.getY())).append(',');
+            json.append((int) Math.ceil(bounds.getWidth()) + 1).append(',');
+            json.append((int) Math.ceil(bounds.getHeight()) + 1);
+            json.append("]}");
+
+            for (TileItem tileItem : tileList.get(i).itemList()) {
+                if (tileItem.element() instanceof Individual individual) {
+                    if (individualJson.length() > 5) {
+                        individualJson.append(',');
+                    }
+                    JsonUtil.appendString(individualJson, individual.id());
+                    individualJson.append(':').append(i);
+                }
+            }
+        }
+
+        json.append("],").append(individualJson).append("}}");
+
+        return json.toString();
+    }
+
+    private static List<Tile> getTileList(GenoMapData genoMapData, List<TileItem> tileItemList, int tileCapacity) {
+
+        GenoMap genoMap = genoMapData.genoMap();
+        Position topLeft = genoMap.boundaryRect().topLeft();
+        Position bottomRight = genoMap.boundaryRect().bottomRight();
+
+        QuadTree<TileItem> quadTree = new QuadTree<>(new Rectangle2D.Double(0, 0,
+                bottomRight.x() - topLeft.x(), topLeft.y() - bottomRight.y()), tileCapacity, MAX_DEPTH);
+
+        for (TileItem tileItem : tileItemList) {
+            quadTree.insert(tileItem.bounds().getCenterX(), tileItem.bounds().getCenterY(), tileItem);
+        }
+
+        List<Tile> tileList = new ArrayList<>();
+
+        for (List<TileItem> itemList : quadTree.getLeafItemLists()) {
+
+            Rectangle2D bounds = null;
+
+            for (TileItem tileItem : itemList) {
+                if (bounds == null) {
+                    bounds = (Rectangle2D) tileItem.bounds().clone();
+                } else {
+                    bounds.add(tileItem.bounds());
+                }
+            }
+
+            tileList.add(new Tile(itemList, bounds));
+        }
+
+        return tileList;
+    }
+
+    // the same elements in the same order as rendered by SvgExporter
+    private static List<TileItem> getTileItemList(GenoMapData genoMapData, GeneratingOptions generatingOptions) {
+
+        GenoMap genoMap = genoMapData.genoMap();
+        int shiftX = SvgExporter.getShiftX(genoMap);
+        int shiftY = SvgExporter.getShiftY(genoMap);
+
+        List<TileItem> tileItemList = new ArrayList<>();
+
+        for (Label label : genoMapData.labelSet()) {
+            if (!generatingOptions.getUnsupportedLabelColorSet().contains(label.labelStyle().fillColor())) {
+                tileItemList.add(new TileItem(0, label, getBounds(label.rect(), shiftX, shiftY)));
+            }
+        }
+
+        for (Family family : genoMapData.familySet()) {
+            tileItemList.add(new TileItem(1, family, getFamilyBounds(family, shiftX, shiftY, generatingOptions)));
+        }
+
+        for (Individual individual : genoMapData.individualSet()) {
+            if (!individual.isAnonymized()) {
+                Rectangle2D bounds = getBounds(Rect.fromBoundaryRect(individual.boundaryRect()), shiftX, shiftY);
+                addPadding(bounds, TEXT_PADDING, TEXT_PADDING);
+                tileItemList.add(new TileItem(2, individual, bounds));
+            }
+        }
+
+        return tileItemList;
+    }
+
+    private static Rectangle2D getFamilyBounds(Family family, int shiftX, int shiftY,
+            GeneratingOptions generatingOptions) {
+
+        Rectangle2D bounds = new Rectangle2D.Double(family.position().x() - shiftX, shiftY - family.position().y(), 0, 0);
+
+        if (family.topBoundaryRect() != null) {
+            bounds.add(getBounds(Rect.fromBoundaryRect(family.topBoundaryRect()), shiftX, shiftY));
+        }
+
+        if (family.bottomBoundaryRect() != null) {
+            bounds.add(getBounds(Rect.fromBoundaryRect(family.bottomBoundaryRect()), shiftX, shiftY));
+        }
+
+        for (PedigreeLink pedigreeLink : family.pedigreeLinkList()) {
+            if (pedigreeLink.position() != null) {
+                bounds.add(pedigreeLink.position().x() - shiftX, shiftY - pedigreeLink.position().y());
+            }
+            if (pedigreeLink.twinPosition() != null) {
+                bounds.add(pedigreeLink.twinPosition().x() - shiftX, shiftY - pedigreeLink.twinPosition().y());
+            }
+        }
+
+        int horizontalPadding = TEXT_PADDING;
+
+        if (family.label() != null) {
+            horizontalPadding += generatingOptions.getMainTextMetrics().stringWidth(family.label()) / 2;
+        }
+
+        addPadding(bounds, horizontalPadding, TEXT_PADDING);
+
+        return bounds;
+    }
+
+    private static Rectangle2D getBounds(Rect rect, int shiftX, int shiftY) {
+        return new Rectangle2D.Double(rect.x() - shiftX, shiftY - rect.y(), rect.width(), rect.height());
+    }
+
+    private static void addPadding(Rectangle2D bounds, int horizontalPadding, int verticalPadding) {
+        bounds.setRect(bounds.getX() - horizontalPadding, bounds.getY() - verticalPadding,
+                bounds.getWidth() + 2 * horizontalPadding, bounds.getHeight() + 2 * verticalPadding);
+    }
+
+    private static String getTileFileName(GenoMap genoMap, String revision, int index) {
+        return genoMap.id() + "-tile" + index + "-" + revision + ".svg";
+    }
+
+    private static String getManifestFileName(GenoMap genoMap) {
+        return genoMap.id() + "-tiles.json";
+    }
+
+    /**
+     * The tiles of a genomap, empty if the genomap is not tiled.
+     */
+    public static final class TileLayout {
+
+        private final GenoMap genoMap;
+        private final String revision;
+        private final List<Tile> tileList;
+
+        private TileLayout(GenoMap genoMap, String revision, List<Tile> tileList) {
+            this.genoMap = genoMap;
+            this.revision = revision;
+            this.tileList = tileList;
+        }
+
+        public boolean isTiled() {
+            return !tileList.isEmpty();
+        }
+
+        /**
+         * Names of the tile and manifest files written for the genomap, without the shell.
+         */
+        public List<String> getFileNameList() {
+
+            List<String> fileNameList = new ArrayList<>();
+
+            if (isTiled()) {
+
+                for (int i = 0; i < tileList.size(); i++) {
+                    fileNameList.add(getTileFileName(genoMap, revision, i));
+                }
+
+                fileNameList.add(getManifestFileName(genoMap));
+            }
+
+            return fileNameList;
+        }
+    }
+
+    private record TileItem(int layer, Object element, Rectangle2D bounds) {
+
+    }
+
+    private record Tile(List<TileItem> itemList, Rectangle2D bounds) {
+
+    }
+}
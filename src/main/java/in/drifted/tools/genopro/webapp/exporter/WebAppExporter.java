@@ -19,20 +19,37 @@ import in.drifted.tools.genopro.core.model.DocumentInfo;
 import in.drifted.tools.genopro.core.model.GenoMap;
 import in.drifted.tools.genopro.core.model.GenoMapData;
 import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import in.drifted.tools.genopro.webapp.exporter.output.CompressingOutputSink;
+import in.drifted.tools.genopro.webapp.exporter.output.OutputSink;
+import in.drifted.tools.genopro.webapp.exporter.util.ExportReport;
+import in.drifted.tools.genopro.webapp.exporter.util.FingerprintUtil;
+import in.drifted.tools.genopro.webapp.exporter.util.JsonUtil;
+import in.drifted.tools.genopro.webapp.exporter.util.ScriptMinifier;
+import in.drifted.tools.genopro.webapp.exporter.util.Template;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class WebAppExporter {
 
@@ -46,6 +63,36 @@ public class WebAppExporter {
     private static final String GOOGLE_ANALYTICS_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH = RESOURCE_PATH + "/google-analytics-registration.js";
     private static final String SERVICE_WORKER_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH = RESOURCE_PATH + "/service-worker-registration.js";
 
+    private static final Map<String, Template> TEMPLATE_MAP = new ConcurrentHashMap<>();
+
+    // quoted just to keep the templates valid scripts
+    private static final Set<String> UNQUOTED_PLACEHOLDER_SET = Set.of("dynamic", "overviewZoom", "precachedRevisions", "lazyRevisions");
+
+    // served from the output folder along with the report page
+    private static final String[] APP_SHELL_FILE_NAMES = {
+        "attribution.js",
+        "genomaps.js",
+        "individuals.js",
+        "main.js",
+        "manifest.json",
+        "service-worker-registration.js",
+        "style.css",
+        "res/hammer.min.js",
+        "res/OpenSans-Regular-webfont.woff",
+        "res/svg-pan-zoom.min.js",
+        "favicon/android-chrome-192x192.png",
+        "favicon/android-chrome-512x512.png",
+        "favicon/apple-touch-icon.png",
+        "favicon/favicon.ico",
+        "favicon/favicon-16x16.png",
+        "favicon/favicon-32x32.png"
+    };
+
+    private static final String GENOMAP_FINGERPRINTS_FILE_NAME = "genomap-fingerprints.properties";
+
+    // revisions of the genomap files are stored along with the fingerprints, so skipped genomaps are never read back
+    private static final String REVISION_KEY_PREFIX = "revision.";
+
     private static final String[] MAIN_HTML_TEMPLATE_LOCALIZED_PLACEHOLDERS = {
         "keywords", "search", "clearSearchInput", "selectGenoMap", "switchTheme"
     };
@@ -56,177 +103,525 @@ public class WebAppExporter {
     };
 
     public static void export(Path reportPath, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions) throws IOException {
+        try (OutputSink outputSink = OutputSink.of(reportPath.toAbsolutePath().getParent(), getGzipLevel(generatingOptions))) {
+            export(outputSink, reportPath.getFileName().toString(), documentInfo, genoMapDataList, generatingOptions, new ExportReport());
+        }
+    }
+
+    public static void export(OutputSink outputSink, String reportFileName, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions, ExportReport exportReport) throws IOException {
 
         String relativeAppUrl = generatingOptions.getAdditionalOptionsMap().getOrDefault("relativeAppUrl", "");
 
-        generateGenoMaps(reportPath.getParent(), genoMapDataList, generatingOptions);
-        generateGoogleAnalyticsRegistrationScript(reportPath.getParent().resolve("google-analytics-registration.js"), generatingOptions);
-        generateServiceWorkerRegistrationScript(reportPath.getParent().resolve("service-worker-registration.js"), generatingOptions);
-        generateMainScript(reportPath.getParent().resolve("main.js"), generatingOptions, true);
-        generateMainHtml(reportPath, documentInfo, genoMapDataList, generatingOptions, true);
-        generateCss(reportPath.getParent().resolve("style.css"), generatingOptions);
-        generateServiceWorker(reportPath.getParent().resolve("service-worker.js"), genoMapDataList, relativeAppUrl);
-        generateManifest(reportPath.getParent().resolve("manifest.json"), documentInfo, relativeAppUrl);
+        // filled while rendering the genomaps, so every genomap is partitioned just once per export
+        Map<String, TiledSvgExporter.TileLayout> tileLayoutMap = new HashMap<>();
+
+        ExportReport.Measurement measurement = exportReport.startStage();
+        Map<String, String> genoMapRevisionMap = generateGenoMaps(outputSink, genoMapDataList, tileLayoutMap, generatingOptions, exportReport);
+        exportReport.endStage("renderGenoMaps", measurement);
+
+        measurement = exportReport.startStage();
+        generateGoogleAnalyticsRegistrationScript(outputSink, "google-analytics-registration.js", generatingOptions);
+        generateServiceWorkerRegistrationScript(outputSink, "service-worker-registration.js", generatingOptions);
+        generateMainScript(outputSink, "main.js", generatingOptions, true);
+        generateMainHtml(outputSink, reportFileName, documentInfo, genoMapDataList, tileLayoutMap, generatingOptions, true, true, exportReport);
+        generateCss(outputSink, "style.css", generatingOptions);
+        generateManifest(outputSink, "manifest.json", documentInfo, relativeAppUrl, generatingOptions);
+        // revisions are taken from the written files, so it goes last
+        generateServiceWorker(outputSink, "service-worker.js", reportFileName, genoMapDataList, tileLayoutMap, genoMapRevisionMap, relativeAppUrl, generatingOptions);
+        exportReport.endStage("generateAppFiles", measurement);
     }
 
     public static void exportAsStaticPage(Path reportPath, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions) throws IOException {
+        try (OutputSink outputSink = OutputSink.of(reportPath.toAbsolutePath().getParent(), getGzipLevel(generatingOptions))) {
+            exportAsStaticPage(outputSink, reportPath.getFileName().toString(), documentInfo, genoMapDataList, generatingOptions, new ExportReport());
+        }
+    }
+
+    public static void exportAsStaticPage(OutputSink outputSink, String reportFileName, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions, ExportReport exportReport) throws IOException {
+
+        ExportReport.Measurement measurement = exportReport.startStage();
+        generateGenoMapIndexes(outputSink, genoMapDataList);
+        exportReport.endStage("generateGenoMapIndexes", measurement);
 
-        generateMainScript(reportPath.getParent().resolve("main.js"), generatingOptions, false);
-        generateMainHtml(reportPath, documentInfo, genoMapDataList, generatingOptions, false);
-        generateCss(reportPath.getParent().resolve("style.css"), generatingOptions);
-        generateManifest(reportPath.getParent().resolve("manifest.json"), documentInfo, "");
+        measurement = exportReport.startStage();
+        generateMainScript(outputSink, "main.js", generatingOptions, false);
+        generateMainHtml(outputSink, reportFileName, documentInfo, genoMapDataList, Map.of(), generatingOptions, false, false, exportReport);
+        generateCss(outputSink, "style.css", generatingOptions);
+        generateManifest(outputSink, "manifest.json", documentInfo, "", generatingOptions);
+        exportReport.endStage("generateStaticPage", measurement);
     }
 
-    private static void generateGenoMaps(Path folderPath, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions) throws IOException {
+    /**
+     * Exports the dynamic app without the genomap SVGs, which are expected to be rendered by
+     * {@link #exportGenoMap(OutputSink, GenoMapData, GeneratingOptions)} once requested. No service worker is
+     * registered, so the previewed files are never served from its cache.
+     */
+    public static void exportForPreview(OutputSink outputSink, String reportFileName, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions, ExportReport exportReport) throws IOException {
+
+        String relativeAppUrl = generatingOptions.getAdditionalOptionsMap().getOrDefault("relativeAppUrl", "");
+
+        ExportReport.Measurement measurement = exportReport.startStage();
+        generateGenoMapIndexes(outputSink, genoMapDataList);
+        exportReport.endStage("generateGenoMapIndexes", measurement);
+
+        measurement = exportReport.startStage();
+        generateGoogleAnalyticsRegistrationScript(outputSink, "google-analytics-registration.js", generatingOptions);
+        generateMainScript(outputSink, "main.js", generatingOptions, true);
+        generateMainHtml(outputSink, reportFileName, documentInfo, genoMapDataList, new HashMap<>(), generatingOptions, true, false, exportReport);
+        generateCss(outputSink, "style.css", generatingOptions);
+        generateManifest(outputSink, "manifest.json", documentInfo, relativeAppUrl, generatingOptions);
+        exportReport.endStage("generateAppFiles", measurement);
+    }
+
+    /**
+     * Renders all SVG files of the genomap (the genomap itself, its tiles and overview) along with its index.
+     */
+    public static void exportGenoMap(OutputSink outputSink, GenoMapData genoMapData, GeneratingOptions generatingOptions) throws IOException {
+
+        TiledSvgExporter.TileLayout tileLayout = TiledSvgExporter.getTileLayout(genoMapData, getTileCapacity(generatingOptions), generatingOptions);
+
+        generateGenoMap(outputSink, genoMapData, tileLayout, generatingOptions, new ExportReport(), false);
+    }
+
+    /**
+     * @return true if the file is one of the SVG files rendered for the genomap or the tile manifest
+     */
+    public static boolean isGenoMapFile(String fileName, GenoMap genoMap) {
+        return fileName.equals(genoMap.id() + ".svg") || fileName.equals(getOverviewFileName(genoMap))
+                || TiledSvgExporter.isTileFile(fileName, genoMap);
+    }
+
+    /**
+     * @return revisions of the files of all genomaps, taken from the previous export for genomaps which are skipped
+     */
+    private static Map<String, String> generateGenoMaps(OutputSink outputSink, List<GenoMapData> genoMapDataList, Map<String, TiledSvgExporter.TileLayout> tileLayoutMap, GeneratingOptions generatingOptions, ExportReport exportReport) throws IOException {
+
+        boolean incremental = Boolean.parseBoolean(generatingOptions.getAdditionalOptionsMap().getOrDefault("incremental", "false"));
+        int gzipLevel = getGzipLevel(generatingOptions);
+
+        Properties previousFingerprints = new Properties();
+        Properties fingerprints = new Properties();
+
+        if (incremental) {
+            try (InputStream inputStream = outputSink.newInputStream(GENOMAP_FINGERPRINTS_FILE_NAME)) {
+                if (inputStream != null) {
+                    previousFingerprints.load(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        Map<String, String> revisionMap = new HashMap<>();
+        List<GenoMapData> pendingGenoMapDataList = new ArrayList<>();
 
         for (GenoMapData genoMapData : genoMapDataList) {
 
             GenoMap genoMap = genoMapData.genoMap();
 
             if (genoMap.title() != null) {
-                try (OutputStream outputStream = Files.newOutputStream(folderPath.resolve(genoMap.id() + ".svg"))) {
-                    SvgExporter.export(genoMapData, outputStream, generatingOptions);
+
+                // computed before rendering, the map is then just read by the render threads
+                TiledSvgExporter.TileLayout tileLayout = getTileLayout(tileLayoutMap, genoMapData, generatingOptions);
+
+                if (incremental) {
+
+                    String fingerprint = FingerprintUtil.getFingerprint(genoMapData, generatingOptions);
+                    fingerprints.setProperty(genoMap.id(), fingerprint);
+
+                    List<String> fileNameList = getGenoMapFileNameList(genoMapData, tileLayout, generatingOptions);
+                    Map<String, String> previousRevisionMap = getRevisionMap(previousFingerprints, fileNameList);
+
+                    if (fingerprint.equals(previousFingerprints.getProperty(genoMap.id()))
+                            && previousRevisionMap != null && isExported(outputSink, fileNameList, gzipLevel)) {
+                        revisionMap.putAll(previousRevisionMap);
+                        continue;
+                    }
                 }
+
+                pendingGenoMapDataList.add(genoMapData);
             }
         }
-    }
 
-    private static void generateGoogleAnalyticsRegistrationScript(Path outputPath, GeneratingOptions generatingOptions) throws IOException {
+        int renderThreads = Math.min(getRenderThreads(generatingOptions), pendingGenoMapDataList.size());
 
-        String gaTrackingId = generatingOptions.getAdditionalOptionsMap().get("gaTrackingId");
+        if (renderThreads > 1) {
 
-        if (gaTrackingId != null) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-                String script = getResourceAsString(GOOGLE_ANALYTICS_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH);
-                script = script.replace("${gaTrackingId}", gaTrackingId);
-                writer.write(script);
+            ExecutorService executorService = Executors.newFixedThreadPool(renderThreads);
+
+            try {
+                List<Future<?>> futureList = new ArrayList<>();
+
+                for (GenoMapData genoMapData : pendingGenoMapDataList) {
+                    futureList.add(executorService.submit(() -> {
+                        generateGenoMap(outputSink, genoMapData, tileLayoutMap.get(genoMapData.genoMap().id()), generatingOptions, exportReport, false);
+                        return null;
+                    }));
+                }
+
+                // futures are processed in the submission order so the first failing genomap is always reported
+                for (Future<?> future : futureList) {
+                    try {
+                        future.get();
+
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException ioException) {
+                            throw ioException;
+                        }
+                        throw new IOException(e.getCause());
+
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Rendering genomaps interrupted");
+                    }
+                }
+
+            } finally {
+                executorService.shutdownNow();
+            }
+
+        } else {
+            for (GenoMapData genoMapData : pendingGenoMapDataList) {
+                generateGenoMap(outputSink, genoMapData, tileLayoutMap.get(genoMapData.genoMap().id()), generatingOptions, exportReport, true);
             }
         }
+
+        // digested by the sink while written
+        for (GenoMapData genoMapData : pendingGenoMapDataList) {
+            for (String fileName : getGenoMapFileNameList(genoMapData, tileLayoutMap.get(genoMapData.genoMap().id()), generatingOptions)) {
+                String revision = outputSink.getFingerprint(fileName);
+                if (revision != null) {
+                    revisionMap.put(fileName, revision);
+                }
+            }
+        }
+
+        if (incremental) {
+
+            for (Map.Entry<String, String> entry : revisionMap.entrySet()) {
+                fingerprints.setProperty(REVISION_KEY_PREFIX + entry.getKey(), entry.getValue());
+            }
+
+            try (Writer writer = outputSink.newBufferedWriter(GENOMAP_FINGERPRINTS_FILE_NAME)) {
+                fingerprints.store(writer, null);
+            }
+        }
+
+        return revisionMap;
     }
 
-    private static void generateServiceWorkerRegistrationScript(Path outputPath, GeneratingOptions generatingOptions) throws IOException {
+    /**
+     * @return revisions of the files stored by the previous export or null if some of them is missing
+     */
+    private static Map<String, String> getRevisionMap(Properties previousFingerprints, List<String> fileNameList) {
 
-        String relativeAppUrl = generatingOptions.getAdditionalOptionsMap().getOrDefault("relativeAppUrl", "");
+        Map<String, String> revisionMap = new HashMap<>();
+
+        for (String fileName : fileNameList) {
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-            String script = getResourceAsString(SERVICE_WORKER_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH);
-            script = script.replace("${relativeAppUrl}", relativeAppUrl);
-            writer.write(script);
+            String revision = previousFingerprints.getProperty(REVISION_KEY_PREFIX + fileName);
+
+            if (revision == null) {
+                return null;
+            }
+
+            revisionMap.put(fileName, revision);
         }
+
+        return revisionMap;
     }
 
-    private static void generateMainScript(Path outputPath, GeneratingOptions generatingOptions, boolean dynamic) throws IOException {
+    /**
+     * @param exclusive true if the genomaps are rendered one by one
+     */
+    private static void generateGenoMap(OutputSink outputSink, GenoMapData genoMapData, TiledSvgExporter.TileLayout tileLayout, GeneratingOptions generatingOptions, ExportReport exportReport, boolean exclusive) throws IOException {
+
+        GenoMap genoMap = genoMapData.genoMap();
+
+        ExportReport.Measurement measurement = exportReport.startGenoMap(exclusive);
+        long svgElementCount;
+
+        try {
+            if (tileLayout.isTiled()) {
+                svgElementCount = TiledSvgExporter.export(outputSink, genoMapData, tileLayout, generatingOptions);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-            String script = getResourceAsString(MAIN_SCRIPT_TEMPLATE_RESOURCE_PATH);
-            for (String placeholder : MAIN_SCRIPT_TEMPLATE_LOCALIZED_PLACEHOLDERS) {
-                script = script.replace("${" + placeholder + "}", generatingOptions.getResourceBundle().getString(placeholder));
+            } else {
+                try (OutputStream outputStream = outputSink.newOutputStream(genoMap.id() + ".svg")) {
+                    svgElementCount = SvgExporter.export(genoMapData, outputStream, generatingOptions);
+                }
             }
-            script = script.replace("\"${dynamic}\"", dynamic ? "true" : "false");
-            script = script.replace("${pedigreeLinksSelectionMode}", generatingOptions.getPedigreeLinksSelectionMode().toString());
 
-            writer.write(script.replaceAll("\\s+", " "));
+            if (getOverviewZoom(generatingOptions) > 0) {
+                try (OutputStream outputStream = outputSink.newOutputStream(getOverviewFileName(genoMap))) {
+                    svgElementCount += SvgExporter.exportOverview(genoMapData, outputStream, generatingOptions);
+                }
+            }
+
+            GenoMapIndexExporter.export(outputSink, genoMapData);
+
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Unable to export genomap " + genoMap.id(), e);
         }
+
+        exportReport.endGenoMap(genoMapData, svgElementCount, measurement);
+    }
+
+    private static TiledSvgExporter.TileLayout getTileLayout(Map<String, TiledSvgExporter.TileLayout> tileLayoutMap, GenoMapData genoMapData, GeneratingOptions generatingOptions) {
+        return tileLayoutMap.computeIfAbsent(genoMapData.genoMap().id(),
+                id -> TiledSvgExporter.getTileLayout(genoMapData, getTileCapacity(generatingOptions), generatingOptions));
+    }
+
+    /**
+     * @return names of all files rendered for the genomap, i.e. the SVG (or the tile shell), tiles, overview and index
+     */
+    private static List<String> getGenoMapFileNameList(GenoMapData genoMapData, TiledSvgExporter.TileLayout tileLayout, GeneratingOptions generatingOptions) {
+
+        GenoMap genoMap = genoMapData.genoMap();
+
+        List<String> fileNameList = new ArrayList<>();
+        fileNameList.add(genoMap.id() + ".svg");
+        fileNameList.add(GenoMapIndexExporter.getFileName(genoMap));
+
+        if (getOverviewZoom(generatingOptions) > 0) {
+            fileNameList.add(getOverviewFileName(genoMap));
+        }
+
+        fileNameList.addAll(tileLayout.getFileNameList());
+
+        return fileNameList;
     }
 
-    private static void generateMainHtml(Path reportPath, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, GeneratingOptions generatingOptions, boolean dynamic) throws IOException {
+    /**
+     * @return true if all the files are present in the output, including their compressed copies if enabled
+     */
+    private static boolean isExported(OutputSink outputSink, List<String> fileNameList, int gzipLevel) throws IOException {
+
+        for (String fileName : fileNameList) {
+            if (!outputSink.exists(fileName)
+                    || (gzipLevel != CompressingOutputSink.NO_COMPRESSION && !outputSink.exists(fileName + ".gz"))) {
+                return false;
+            }
+        }
 
-        String content;
+        return true;
+    }
 
-        if (dynamic) {
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                SvgExporter.export(genoMapDataList.iterator().next(), outputStream, generatingOptions);
-                content = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    private static void generateGenoMapIndexes(OutputSink outputSink, List<GenoMapData> genoMapDataList) throws IOException {
+        for (GenoMapData genoMapData : genoMapDataList) {
+            if (genoMapData.genoMap().title() != null) {
+                GenoMapIndexExporter.export(outputSink, genoMapData);
             }
+        }
+    }
 
-        } else {
+    private static int getGzipLevel(GeneratingOptions generatingOptions) {
+        return CompressingOutputSink.getGzipLevel(generatingOptions.getAdditionalOptionsMap());
+    }
 
-            StringBuilder svgContentBuilder = new StringBuilder();
+    private static String getOverviewFileName(GenoMap genoMap) {
+        return genoMap.id() + "-overview.svg";
+    }
 
-            for (GenoMapData genoMapData : genoMapDataList) {
+    private static double getOverviewZoom(GeneratingOptions generatingOptions) {
+        return Double.parseDouble(generatingOptions.getAdditionalOptionsMap().getOrDefault("overviewZoom", "0"));
+    }
 
-                GenoMap genoMap = genoMapData.genoMap();
+    private static int getTileCapacity(GeneratingOptions generatingOptions) {
+        return Integer.parseInt(generatingOptions.getAdditionalOptionsMap().getOrDefault("tileCapacity", "0"));
+    }
 
-                if (genoMap.title() != null) {
+    private static int getRenderThreads(GeneratingOptions generatingOptions) {
 
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                    SvgExporter.export(genoMapData, outputStream, generatingOptions);
-                    svgContentBuilder.append(new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
-                }
+        int renderThreads = Integer.parseInt(generatingOptions.getAdditionalOptionsMap().getOrDefault("renderThreads", "1"));
+
+        return (renderThreads > 0) ? renderThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void generateGoogleAnalyticsRegistrationScript(OutputSink outputSink, String fileName, GeneratingOptions generatingOptions) throws IOException {
+
+        String gaTrackingId = generatingOptions.getAdditionalOptionsMap().get("gaTrackingId");
+
+        if (gaTrackingId != null) {
+            try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+                getTemplate(GOOGLE_ANALYTICS_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH)
+                        .render(writer, Map.of("gaTrackingId", gaTrackingId));
             }
+        }
+    }
+
+    private static void generateServiceWorkerRegistrationScript(OutputSink outputSink, String fileName, GeneratingOptions generatingOptions) throws IOException {
+
+        String relativeAppUrl = generatingOptions.getAdditionalOptionsMap().getOrDefault("relativeAppUrl", "");
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            getTemplate(SERVICE_WORKER_REGISTRATION_SCRIPT_TEMPLATE_RESOURCE_PATH)
+                    .render(writer, Map.of("relativeAppUrl", relativeAppUrl));
+        }
+    }
+
+    private static void generateMainScript(OutputSink outputSink, String fileName, GeneratingOptions generatingOptions, boolean dynamic) throws IOException {
+
+        Map<String, String> placeholderMap = new HashMap<>();
 
-            content = svgContentBuilder.toString();
+        for (String placeholder : MAIN_SCRIPT_TEMPLATE_LOCALIZED_PLACEHOLDERS) {
+            placeholderMap.put(placeholder, generatingOptions.getResourceBundle().getString(placeholder));
         }
 
+        placeholderMap.put("dynamic", dynamic ? "true" : "false");
+        placeholderMap.put("overviewZoom", dynamic ? String.valueOf(getOverviewZoom(generatingOptions)) : "0");
+        placeholderMap.put("pedigreeLinksSelectionMode", generatingOptions.getPedigreeLinksSelectionMode().toString());
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            getTemplate(MAIN_SCRIPT_TEMPLATE_RESOURCE_PATH).render(writer, placeholderMap);
+        }
+    }
+
+    private static void generateMainHtml(OutputSink outputSink, String reportFileName, DocumentInfo documentInfo, List<GenoMapData> genoMapDataList, Map<String, TiledSvgExporter.TileLayout> tileLayoutMap, GeneratingOptions generatingOptions, boolean dynamic, boolean offline, ExportReport exportReport) throws IOException {
+
         Map<String, String> placeholderMap = new HashMap<>();
 
         placeholderMap.put("language", generatingOptions.getLocale().getLanguage());
         placeholderMap.put("title", documentInfo.title());
         placeholderMap.put("description", documentInfo.description());
-        placeholderMap.put("content", content);
         placeholderMap.put("googleAnalyticsRegistration", getGoogleAnalyticsRegistration(generatingOptions));
         placeholderMap.put("webApplicationManifest", dynamic ? getWebApplicationManifest() : "");
-        placeholderMap.put("serviceWorkerRegistration", dynamic ? getServiceWorkerRegistration() : "");
+        placeholderMap.put("serviceWorkerRegistration", offline ? getServiceWorkerRegistration() : "");
         placeholderMap.put("timestamp", "<!-- " + LocalDateTime.now().toString() + " -->");
 
-        String mainHtml = getResourceAsString(MAIN_HTML_TEMPLATE_RESOURCE_PATH);
-
-        for (Entry<String, String> entry : placeholderMap.entrySet()) {
-            mainHtml = mainHtml.replace("${" + entry.getKey() + "}", entry.getValue());
-        }
-
         for (String placeholder : MAIN_HTML_TEMPLATE_LOCALIZED_PLACEHOLDERS) {
-            mainHtml = mainHtml.replace("${" + placeholder + "}", generatingOptions.getResourceBundle().getString(placeholder));
+            placeholderMap.put(placeholder, generatingOptions.getResourceBundle().getString(placeholder));
         }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(reportPath)) {
-            writer.write(mainHtml);
+        try (
+                OutputStream outputStream = outputSink.newOutputStream(reportFileName);
+                Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+
+            // the content is streamed directly into the page so the whole page is never held in memory
+            getTemplate(MAIN_HTML_TEMPLATE_RESOURCE_PATH).render(writer, (placeholder, placeholderWriter) -> {
+
+                if (placeholder.equals("content")) {
+
+                    placeholderWriter.flush();
+
+                    if (dynamic) {
+
+                        GenoMapData genoMapData = genoMapDataList.iterator().next();
+
+                        // the detail is loaded once zoomed in
+                        if (getOverviewZoom(generatingOptions) > 0) {
+                            SvgExporter.exportOverview(genoMapData, outputStream, generatingOptions);
+                        } else if (getTileLayout(tileLayoutMap, genoMapData, generatingOptions).isTiled()) {
+                            TiledSvgExporter.exportShell(genoMapData, outputStream);
+                        } else {
+                            SvgExporter.export(genoMapData, outputStream, generatingOptions);
+                        }
+
+                    } else {
+
+                        for (GenoMapData genoMapData : genoMapDataList) {
+                            if (genoMapData.genoMap().title() != null) {
+                                ExportReport.Measurement measurement = exportReport.startGenoMap(true);
+                                long svgElementCount = SvgExporter.export(genoMapData, outputStream, generatingOptions);
+                                exportReport.endGenoMap(genoMapData, svgElementCount, measurement);
+                            }
+                        }
+                    }
+
+                } else {
+                    placeholderWriter.write(placeholderMap.getOrDefault(placeholder, "${" + placeholder + "}"));
+                }
+            });
         }
     }
 
-    private static void generateCss(Path cssPath, GeneratingOptions generatingOptions) throws IOException {
+    private static void generateCss(OutputSink outputSink, String fileName, GeneratingOptions generatingOptions) throws IOException {
 
         Map<String, String> additionalOptionMap = generatingOptions.getAdditionalOptionsMap();
 
-        try (BufferedWriter writer = Files.newBufferedWriter(cssPath)) {
-
-            String css = getResourceAsString(CSS_TEMPLATE_RESOURCE_PATH);
-            css = css.replace("${fontFamily}", generatingOptions.getFontFamily());
-            css = css.replace("${relativeFontPath}", additionalOptionMap.get("relativeFontPath"));
+        Map<String, String> placeholderMap = new HashMap<>();
+        placeholderMap.put("fontFamily", generatingOptions.getFontFamily());
+        placeholderMap.put("relativeFontPath", additionalOptionMap.get("relativeFontPath"));
 
-            writer.write(css);
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            getTemplate(CSS_TEMPLATE_RESOURCE_PATH).render(writer, placeholderMap);
         }
     }
 
-    private static void generateServiceWorker(Path serviceWorkerPath, List<GenoMapData> genoMapDataList, String relativeAppUrl) throws IOException {
+    private static void generateServiceWorker(OutputSink outputSink, String fileName, String reportFileName, List<GenoMapData> genoMapDataList, Map<String, TiledSvgExporter.TileLayout> tileLayoutMap, Map<String, String> genoMapRevisionMap, String relativeAppUrl, GeneratingOptions generatingOptions) throws IOException {
+
+        // the app shell is cached at install, genomap files on first use
+        Map<String, String> precachedRevisionMap = new LinkedHashMap<>();
+        Map<String, String> lazyRevisionMap = new LinkedHashMap<>();
 
-        try (BufferedWriter writer = Files.newBufferedWriter(serviceWorkerPath)) {
+        List<String> appShellFileNameList = new ArrayList<>();
+        appShellFileNameList.add(reportFileName);
+        appShellFileNameList.addAll(List.of(APP_SHELL_FILE_NAMES));
 
-            String serviceWorker = getResourceAsString(SERVICE_WORKER_TEMPLATE_RESOURCE_PATH);
-            serviceWorker = serviceWorker.replace("${relativeAppUrl}", relativeAppUrl);
-            serviceWorker = serviceWorker.replace("${currentCacheId}", LocalDateTime.now().toString());
+        // files written by this export are digested while written, just the resources are read back
+        for (String appShellFileName : appShellFileNameList) {
 
-            List<String> genoMapPathList = new ArrayList<>();
+            String fingerprint = outputSink.getFingerprint(appShellFileName);
 
-            for (GenoMapData genoMapData : genoMapDataList) {
-                genoMapPathList.add("relativeAppUrl + \"/" + genoMapData.genoMap().id() + ".svg\"");
+            if (fingerprint != null) {
+                precachedRevisionMap.put(appShellFileName, fingerprint);
+            } else {
+                // e.g. resources copied after the export, they are cached once they are requested
+                lazyRevisionMap.put(appShellFileName, "");
             }
+        }
 
-            serviceWorker = serviceWorker.replace("\"${genoMapPathList}\"", String.join(",\n", genoMapPathList));
+        // the app root is served by the report page
+        precachedRevisionMap.put("", precachedRevisionMap.getOrDefault(reportFileName, ""));
+
+        for (GenoMapData genoMapData : genoMapDataList) {
+            for (String genoMapFileName : getGenoMapFileNameList(genoMapData,
+                    getTileLayout(tileLayoutMap, genoMapData, generatingOptions), generatingOptions)) {
+                lazyRevisionMap.put(genoMapFileName, genoMapRevisionMap.getOrDefault(genoMapFileName, ""));
+            }
+        }
 
-            writer.write(serviceWorker);
+        if (Boolean.parseBoolean(generatingOptions.getAdditionalOptionsMap().getOrDefault("shardIndividuals", "false"))) {
+            for (String shardFileName : IndividualsExporter.getShardFileNameList(genoMapDataList)) {
+                String fingerprint = outputSink.getFingerprint(shardFileName);
+                lazyRevisionMap.put(shardFileName, (fingerprint != null) ? fingerprint : "");
+            }
+        }
+
+        Map<String, String> placeholderMap = new HashMap<>();
+        placeholderMap.put("relativeAppUrl", relativeAppUrl);
+        placeholderMap.put("precachedRevisions", getRevisionMapJson(precachedRevisionMap));
+        placeholderMap.put("lazyRevisions", getRevisionMapJson(lazyRevisionMap));
+
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            getTemplate(SERVICE_WORKER_TEMPLATE_RESOURCE_PATH).render(writer, placeholderMap);
         }
     }
 
-    private static void generateManifest(Path manifestPath, DocumentInfo documentInfo, String relativeAppUrl) throws IOException {
+    /**
+     * {file path relative to the app:revision,...}
+     */
+    private static String getRevisionMapJson(Map<String, String> revisionMap) {
+
+        StringBuilder json = new StringBuilder("{");
+
+        for (Map.Entry<String, String> entry : revisionMap.entrySet()) {
+            if (json.length() > 1) {
+                json.append(",\n");
+            }
+            JsonUtil.appendString(json, entry.getKey());
+            json.append(':');
+            JsonUtil.appendString(json, entry.getValue());
+        }
+
+        return json.append('}').toString();
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(manifestPath)) {
+    private static void generateManifest(OutputSink outputSink, String fileName, DocumentInfo documentInfo, String relativeAppUrl, GeneratingOptions generatingOptions) throws IOException {
 
-            String manifest = getResourceAsString(MANIFEST_TEMPLATE_RESOURCE_PATH);
-            manifest = manifest.replace("${title}", documentInfo.title());
-            manifest = manifest.replace("${relativeAppUrl}", relativeAppUrl);
+        Map<String, String> placeholderMap = new HashMap<>();
+        placeholderMap.put("title", documentInfo.title());
+        placeholderMap.put("relativeAppUrl", relativeAppUrl);
 
-            writer.write(manifest);
+        try (BufferedWriter writer = outputSink.newBufferedWriter(fileName)) {
+            getTemplate(MANIFEST_TEMPLATE_RESOURCE_PATH).render(writer, placeholderMap);
         }
     }
 
@@ -251,6 +646,25 @@ public class WebAppExporter {
         return "<script src=\"service-worker-registration.js\"></script>";
     }
 
+    private static Template getTemplate(String resourcePath) throws IOException {
+
+        Template template = TEMPLATE_MAP.get(resourcePath);
+
+        if (template == null) {
+
+            String text = getResourceAsString(resourcePath);
+
+            if (resourcePath.equals(MAIN_SCRIPT_TEMPLATE_RESOURCE_PATH)) {
+                text = ScriptMinifier.minify(text);
+            }
+
+            template = Template.compile(text, UNQUOTED_PLACEHOLDER_SET);
+            TEMPLATE_MAP.putIfAbsent(resourcePath, template);
+        }
+
+        return template;
+    }
+
     private static String getResourceAsString(String resourcePath) throws IOException {
 
         try (
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.event;
+
+/**
+ * Switch for the Java Flight Recorder events of the export. Events are created only if enabled, so the event classes
+ * are not even loaded otherwise, e.g. in runtimes without the jdk.jfr module. Enabled events are recorded as soon as
+ * a recording is started, e.g. by -XX:StartFlightRecording.
+ */
+public class ExportEvents {
+
+    // set before the export starts, so it is visible to the rendering threads too
+    private static boolean enabled = false;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ExportEvents.enabled = enabled;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("in.drifted.genopro.FileWrite")
+@Label("File Write")
+@Category({"GenoPro", "WebApp Exporter"})
+@Description("Writing of an output file, from opening to closing")
+@StackTrace(false)
+public class FileWriteEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    public static FileWriteEvent start() {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String path, long bytesWritten) {
+
+        end();
+
+        if (shouldCommit()) {
+            this.path = path;
+            this.bytesWritten = bytesWritten;
+            commit();
+        }
+    }
+}
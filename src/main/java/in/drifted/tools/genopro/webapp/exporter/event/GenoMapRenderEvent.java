@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.event;
+
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("in.drifted.genopro.GenoMapRender")
+@Label("GenoMap Render")
+@Category({"GenoPro", "WebApp Exporter"})
+@Description("Rendering of a genomap SVG, its overview or tiles")
+@StackTrace(false)
+public class GenoMapRenderEvent extends Event {
+
+    @Label("GenoMap Id")
+    String genoMapId;
+
+    @Label("Variant")
+    @Description("full, overview or tiled")
+    String variant;
+
+    @Label("Labels")
+    int labelCount;
+
+    @Label("Families")
+    int familyCount;
+
+    @Label("Individuals")
+    int individualCount;
+
+    @Label("SVG Elements")
+    long svgElementCount;
+
+    public static GenoMapRenderEvent start() {
+        GenoMapRenderEvent event = new GenoMapRenderEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(GenoMapData genoMapData, String variant, long svgElementCount) {
+
+        end();
+
+        if (shouldCommit()) {
+            this.genoMapId = genoMapData.genoMap().id();
+            this.variant = variant;
+            this.labelCount = genoMapData.labelSet().size();
+            this.familyCount = genoMapData.familySet().size();
+            this.individualCount = genoMapData.individualSet().size();
+            this.svgElementCount = svgElementCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("in.drifted.genopro.IndividualsSort")
+@Label("Individuals Sort")
+@Category({"GenoPro", "WebApp Exporter"})
+@Description("Sorting of the exported individuals by their birth dates")
+@StackTrace(false)
+public class IndividualsSortEvent extends Event {
+
+    @Label("Individuals")
+    int individualCount;
+
+    public static IndividualsSortEvent start() {
+        IndividualsSortEvent event = new IndividualsSortEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(int individualCount) {
+
+        end();
+
+        if (shouldCommit()) {
+            this.individualCount = individualCount;
+            commit();
+        }
+    }
+}
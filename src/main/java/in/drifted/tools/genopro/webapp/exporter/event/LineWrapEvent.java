@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("in.drifted.genopro.LineWrap")
+@Label("Line Wrap")
+@Category({"GenoPro", "WebApp Exporter"})
+@Description("Wrapping of a label or name text which was not cached yet")
+@StackTrace(false)
+public class LineWrapEvent extends Event {
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Max Width")
+    int maxWidth;
+
+    @Label("Font Size")
+    double fontSize;
+
+    @Label("Lines")
+    int lineCount;
+
+    public static LineWrapEvent start() {
+        LineWrapEvent event = new LineWrapEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String text, int maxWidth, double fontSize, int lineCount) {
+
+        end();
+
+        if (shouldCommit()) {
+            this.textLength = text.length();
+            this.maxWidth = maxWidth;
+            this.fontSize = fontSize;
+            this.lineCount = lineCount;
+            commit();
+        }
+    }
+}
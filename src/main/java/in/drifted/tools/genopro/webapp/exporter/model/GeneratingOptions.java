@@ -19,15 +19,15 @@ import in.drifted.tools.genopro.core.model.Color;
 import in.drifted.tools.genopro.core.model.DisplayStyle;
 import in.drifted.tools.genopro.core.util.formatter.AgeFormatter;
 import in.drifted.tools.genopro.core.util.formatter.DateFormatter;
-import java.awt.Canvas;
-import java.awt.Font;
-import java.awt.FontMetrics;
-import java.awt.font.TextAttribute;
-import java.util.HashMap;
+import in.drifted.tools.genopro.webapp.exporter.util.AwtTextMetricsFactory;
+import in.drifted.tools.genopro.webapp.exporter.util.LineWrapCache;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetrics;
+import in.drifted.tools.genopro.webapp.exporter.util.TextMetricsFactory;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeneratingOptions {
 
@@ -35,16 +35,19 @@ public class GeneratingOptions {
     public static final int AGE_FONT_SIZE_IN_PIXELS = 9;
     public static final int MAIN_LINE_HEIGHT_IN_PIXELS = 14;
 
+    private static final int LINE_WRAP_CACHE_SIZE = 10000;
+
     private final Locale locale;
     private final ResourceBundle resourceBundle;
     private final String fontFamily;
     private final DisplayStyle displayStyle;
     private final DateFormatter dateFormatter;
     private final AgeFormatter ageFormatter;
-    private final Canvas canvas;
-    private final Font mainFont;
-    private final FontMetrics mainFontMetrics;
-    private final FontMetrics ageFontMetrics;
+    private final TextMetricsFactory textMetricsFactory;
+    private final Map<Double, TextMetrics> textMetricsMap = new ConcurrentHashMap<>();
+    private final LineWrapCache lineWrapCache = new LineWrapCache(LINE_WRAP_CACHE_SIZE);
+    private final TextMetrics mainTextMetrics;
+    private final TextMetrics ageTextMetrics;
     private final Set<Color> unsupportedLabelColorSet;
     private final boolean monochromeLabels;
     private final Map<String, String> additionalOptionsMap;
@@ -55,13 +58,14 @@ public class GeneratingOptions {
             Set<Color> unsupportedLabelColorSet, boolean monochromeLabels,
             PedigreeLinksSelectionMode pedigreeLinksSelectionMode, Map<String, String> additionalOptionsMap) {
 
-        Canvas canvas = new Canvas();
+        this(locale, resourceBundle, fontFamily, new AwtTextMetricsFactory(fontFamily), displayStyle, dateFormatter,
+                ageFormatter, unsupportedLabelColorSet, monochromeLabels, pedigreeLinksSelectionMode, additionalOptionsMap);
+    }
 
-        Map<TextAttribute, Object> mainTextAttributes = new HashMap<>();
-        mainTextAttributes.put(TextAttribute.FAMILY, fontFamily);
-        mainTextAttributes.put(TextAttribute.SIZE, MAIN_FONT_SIZE_IN_PIXELS);
-        mainTextAttributes.put(TextAttribute.KERNING, TextAttribute.KERNING_ON);
-        mainFont = new Font(mainTextAttributes);
+    public GeneratingOptions(Locale locale, ResourceBundle resourceBundle, String fontFamily,
+            TextMetricsFactory textMetricsFactory, DisplayStyle displayStyle, DateFormatter dateFormatter,
+            AgeFormatter ageFormatter, Set<Color> unsupportedLabelColorSet, boolean monochromeLabels,
+            PedigreeLinksSelectionMode pedigreeLinksSelectionMode, Map<String, String> additionalOptionsMap) {
 
         this.locale = locale;
         this.resourceBundle = resourceBundle;
@@ -69,17 +73,25 @@ public class GeneratingOptions {
         this.displayStyle = displayStyle;
         this.dateFormatter = dateFormatter;
         this.ageFormatter = ageFormatter;
-        this.canvas = new Canvas();
-        this.mainFontMetrics = canvas.getFontMetrics(mainFont);
-        this.ageFontMetrics = getFontMetrics(AGE_FONT_SIZE_IN_PIXELS);
+        this.textMetricsFactory = textMetricsFactory;
+        this.mainTextMetrics = getTextMetrics(MAIN_FONT_SIZE_IN_PIXELS);
+        this.ageTextMetrics = getTextMetrics(AGE_FONT_SIZE_IN_PIXELS);
         this.unsupportedLabelColorSet = unsupportedLabelColorSet;
         this.monochromeLabels = monochromeLabels;
         this.additionalOptionsMap = additionalOptionsMap;
         this.pedigreeLinksSelectionMode = pedigreeLinksSelectionMode;
     }
 
-    public FontMetrics getFontMetrics(double sizeInPixels) {
-        return canvas.getFontMetrics(mainFont.deriveFont((float) sizeInPixels));
+    public TextMetrics getTextMetrics(double sizeInPixels) {
+        return textMetricsMap.computeIfAbsent(sizeInPixels, textMetricsFactory::getTextMetrics);
+    }
+
+    public String getTextMetricsId() {
+        return textMetricsFactory.getId();
+    }
+
+    public LineWrapCache getLineWrapCache() {
+        return lineWrapCache;
     }
 
     public Locale getLocale() {
@@ -106,12 +118,12 @@ public class GeneratingOptions {
         return ageFormatter;
     }
 
-    public FontMetrics getMainFontMetrics() {
-        return mainFontMetrics;
+    public TextMetrics getMainTextMetrics() {
+        return mainTextMetrics;
     }
 
-    public FontMetrics getAgeFontMetrics() {
-        return ageFontMetrics;
+    public TextMetrics getAgeTextMetrics() {
+        return ageTextMetrics;
     }
 
     public Set<Color> getUnsupportedLabelColorSet() {
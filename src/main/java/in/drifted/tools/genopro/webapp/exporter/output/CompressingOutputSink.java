@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import in.drifted.tools.genopro.webapp.exporter.util.TeeOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the files into the target sink along with gzip compressed siblings (.gz, and .svgz for SVG files) which can
+ * be served by static file servers as they are. The compressed data is produced while writing, from a single
+ * compressor. Only files served to browsers are compressed, e.g. not the fingerprints of the incremental mode.
+ */
+public class CompressingOutputSink implements OutputSink {
+
+    public static final int NO_COMPRESSION = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_EXTENSION_SET = Set.of("html", "js", "css", "json", "svg");
+
+    private final OutputSink outputSink;
+    private final int gzipLevel;
+
+    public CompressingOutputSink(OutputSink outputSink, int gzipLevel) {
+
+        if (gzipLevel < Deflater.NO_COMPRESSION || gzipLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Unsupported gzip level: " + gzipLevel);
+        }
+
+        this.outputSink = outputSink;
+        this.gzipLevel = gzipLevel;
+    }
+
+    public static int getGzipLevel(Map<String, String> additionalOptionsMap) {
+
+        String gzipLevel = additionalOptionsMap.get("gzipLevel");
+
+        if (gzipLevel == null) {
+            return NO_COMPRESSION;
+        }
+
+        int level = Integer.parseInt(gzipLevel);
+
+        if (level != NO_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Unsupported gzip level: " + gzipLevel);
+        }
+
+        return level;
+    }
+
+    @Override
+    public OutputStream newOutputStream(String fileName) throws IOException {
+
+        OutputStream outputStream = outputSink.newOutputStream(fileName);
+
+        if (!COMPRESSED_EXTENSION_SET.contains(fileName.substring(fileName.lastIndexOf('.') + 1))) {
+            return outputStream;
+        }
+
+        OutputStream compressedOutputStream = null;
+
+        try {
+            compressedOutputStream = outputSink.newOutputStream(fileName + ".gz");
+
+            if (fileName.endsWith(".svg")) {
+                compressedOutputStream = new TeeOutputStream(compressedOutputStream,
+                        outputSink.newOutputStream(fileName + "z"));
+            }
+
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedOutputStream, BUFFER_SIZE) {
+                {
+                    def.setLevel(gzipLevel);
+                }
+            };
+
+            return new TeeOutputStream(outputStream, gzipOutputStream);
+
+        } catch (IOException e) {
+            outputStream.close();
+            if (compressedOutputStream != null) {
+                compressedOutputStream.close();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists(String fileName) throws IOException {
+        return outputSink.exists(fileName);
+    }
+
+    @Override
+    public InputStream newInputStream(String fileName) throws IOException {
+        return outputSink.newInputStream(fileName);
+    }
+
+    @Override
+    public String getFingerprint(String fileName) throws IOException {
+        return outputSink.getFingerprint(fileName);
+    }
+
+    @Override
+    public Map<String, Long> getFileSizeMap() {
+        return outputSink.getFileSizeMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputSink.close();
+    }
+}
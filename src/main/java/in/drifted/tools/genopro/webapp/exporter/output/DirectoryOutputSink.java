@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DirectoryOutputSink extends RecordingOutputSink {
+
+    private final Path folderPath;
+
+    public DirectoryOutputSink(Path folderPath) {
+        this.folderPath = folderPath;
+    }
+
+    @Override
+    OutputStream createOutputStream(String fileName) throws IOException {
+        return Files.newOutputStream(folderPath.resolve(fileName));
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        return Files.exists(folderPath.resolve(fileName));
+    }
+
+    @Override
+    public InputStream newInputStream(String fileName) throws IOException {
+
+        Path path = folderPath.resolve(fileName);
+
+        return Files.exists(path) ? Files.newInputStream(path) : null;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the exported files in memory, e.g. for serving them without writing to disk. A file becomes available once its
+ * stream is closed, a file written again replaces the previous content.
+ */
+public class MemoryOutputSink extends RecordingOutputSink {
+
+    private final Map<String, byte[]> fileMap = new ConcurrentHashMap<>();
+
+    @Override
+    OutputStream createOutputStream(String fileName) {
+
+        return new ByteArrayOutputStream() {
+
+            @Override
+            public void close() {
+                fileMap.put(fileName, toByteArray());
+            }
+        };
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        return fileMap.containsKey(fileName);
+    }
+
+    @Override
+    public InputStream newInputStream(String fileName) {
+
+        byte[] bytes = fileMap.get(fileName);
+
+        return (bytes != null) ? new ByteArrayInputStream(bytes) : null;
+    }
+
+    /**
+     * @return the file content or null if the file hasn't been written
+     */
+    public byte[] getBytes(String fileName) {
+        return fileMap.get(fileName);
+    }
+}
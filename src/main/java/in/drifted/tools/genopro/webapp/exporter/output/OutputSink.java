@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import in.drifted.tools.genopro.webapp.exporter.util.FingerprintUtil;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Target of the exported files. Files are addressed by paths relative to the app root, so exporters don't need to know
+ * whether the files end up in a folder, in memory or in an archive.
+ */
+public interface OutputSink extends Closeable {
+
+    OutputStream newOutputStream(String fileName) throws IOException;
+
+    default BufferedWriter newBufferedWriter(String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(newOutputStream(fileName), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true if the file is present in the target, either written by this export or already there before
+     */
+    boolean exists(String fileName) throws IOException;
+
+    /**
+     * @return the file content or null if the file doesn't exist or the target can't be read back
+     */
+    InputStream newInputStream(String fileName) throws IOException;
+
+    /**
+     * @return shortened digest of the file content or null if the file doesn't exist
+     */
+    default String getFingerprint(String fileName) throws IOException {
+        try (InputStream inputStream = newInputStream(fileName)) {
+            return (inputStream != null) ? FingerprintUtil.getContentFingerprint(inputStream) : null;
+        }
+    }
+
+    /**
+     * @return sizes of the files written through this sink, sorted by the file name
+     */
+    Map<String, Long> getFileSizeMap();
+
+    /**
+     * Completes the output, e.g. the archive. Files have to be closed before.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * @param gzipLevel level of the compressed siblings or {@link CompressingOutputSink#NO_COMPRESSION}
+     */
+    static OutputSink of(Path folderPath, int gzipLevel) {
+
+        OutputSink outputSink = new DirectoryOutputSink(folderPath);
+
+        return (gzipLevel == CompressingOutputSink.NO_COMPRESSION)
+                ? outputSink : new CompressingOutputSink(outputSink, gzipLevel);
+    }
+}
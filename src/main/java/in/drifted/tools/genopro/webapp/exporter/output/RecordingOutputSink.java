@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base of the sinks keeping the fingerprints of the written files. The content is digested while it is written, so
+ * the files don't need to be read back to get their revisions.
+ */
+abstract class RecordingOutputSink implements OutputSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, String> fingerprintMap = new ConcurrentHashMap<>();
+    private final Map<String, Long> fileSizeMap = new ConcurrentHashMap<>();
+
+    /**
+     * @return unbuffered stream writing the file into the target
+     */
+    abstract OutputStream createOutputStream(String fileName) throws IOException;
+
+    @Override
+    public OutputStream newOutputStream(String fileName) throws IOException {
+        return new BufferedOutputStream(new RecordingOutputStream(createOutputStream(fileName), this, fileName),
+                BUFFER_SIZE);
+    }
+
+    /**
+     * @return the fingerprint of the file written through this sink, or of the file read back from the target
+     */
+    @Override
+    public String getFingerprint(String fileName) throws IOException {
+
+        String fingerprint = fingerprintMap.get(fileName);
+
+        return (fingerprint != null) ? fingerprint : OutputSink.super.getFingerprint(fileName);
+    }
+
+    @Override
+    public Map<String, Long> getFileSizeMap() {
+        return new TreeMap<>(fileSizeMap);
+    }
+
+    boolean isWritten(String fileName) {
+        return fingerprintMap.containsKey(fileName);
+    }
+
+    void record(String fileName, long size, String fingerprint) {
+        fileSizeMap.put(fileName, size);
+        fingerprintMap.put(fileName, fingerprint);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
+import in.drifted.tools.genopro.webapp.exporter.event.FileWriteEvent;
+import in.drifted.tools.genopro.webapp.exporter.util.FingerprintUtil;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+// digests the content while it is written, the event covers the whole lifetime of the stream as the content is
+// typically streamed while being generated
+class RecordingOutputStream extends FilterOutputStream {
+
+    private final RecordingOutputSink outputSink;
+    private final String fileName;
+    private final MessageDigest messageDigest = FingerprintUtil.getContentDigest();
+    private final FileWriteEvent event = ExportEvents.isEnabled() ? FileWriteEvent.start() : null;
+    private long bytesWritten = 0;
+    private boolean closed = false;
+
+    RecordingOutputStream(OutputStream outputStream, RecordingOutputSink outputSink, String fileName) {
+        super(outputStream);
+        this.outputSink = outputSink;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        messageDigest.update((byte) b);
+        bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        messageDigest.update(b, off, len);
+        bytesWritten += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        super.close();
+
+        outputSink.record(fileName, bytesWritten, FingerprintUtil.getContentFingerprint(messageDigest));
+
+        if (event != null) {
+            event.finish(fileName, bytesWritten);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the exported files into a ZIP archive, e.g. for uploading the whole app at once. A file is written straight
+ * into the archive unless another entry is being written at the same time, e.g. by parallel genomap rendering or as
+ * a compressed copy. Only such files are collected in memory and added once the streamed entry is completed. The
+ * archive can't be read back, just the fingerprints of the entries are kept.
+ */
+public class ZipOutputSink extends RecordingOutputSink {
+
+    private final ZipOutputStream zipOutputStream;
+
+    // files closed while another entry was streamed
+    private final List<PendingEntry> pendingEntryList = new ArrayList<>();
+    private boolean entryStreamed = false;
+
+    public ZipOutputSink(OutputStream outputStream) {
+        this.zipOutputStream = new ZipOutputStream(outputStream);
+    }
+
+    @Override
+    synchronized OutputStream createOutputStream(String fileName) throws IOException {
+
+        if (!entryStreamed) {
+
+            zipOutputStream.putNextEntry(new ZipEntry(fileName));
+            entryStreamed = true;
+
+            // no other entry is written until this one is completed, so the archive is written without locking
+            return new FilterOutputStream(zipOutputStream) {
+
+                private boolean closed = false;
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        completeStreamedEntry();
+                    }
+                }
+            };
+        }
+
+        return new ByteArrayOutputStream() {
+
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    addEntry(new PendingEntry(fileName, this));
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        return isWritten(fileName);
+    }
+
+    @Override
+    public InputStream newInputStream(String fileName) {
+        return null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        zipOutputStream.close();
+    }
+
+    private synchronized void completeStreamedEntry() throws IOException {
+
+        zipOutputStream.closeEntry();
+        entryStreamed = false;
+
+        for (PendingEntry pendingEntry : pendingEntryList) {
+            writeEntry(pendingEntry);
+        }
+
+        pendingEntryList.clear();
+    }
+
+    private synchronized void addEntry(PendingEntry pendingEntry) throws IOException {
+        if (entryStreamed) {
+            pendingEntryList.add(pendingEntry);
+        } else {
+            writeEntry(pendingEntry);
+        }
+    }
+
+    private void writeEntry(PendingEntry pendingEntry) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(pendingEntry.fileName()));
+        pendingEntry.content().writeTo(zipOutputStream);
+        zipOutputStream.closeEntry();
+    }
+
+    private record PendingEntry(String fileName, ByteArrayOutputStream content) {
+
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.awt.Canvas;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.font.TextAttribute;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fallback metrics based on the font installed in the system. Used only if the font file is not available.
+ */
+public class AwtTextMetricsFactory implements TextMetricsFactory {
+
+    private final Canvas canvas;
+    private final Font font;
+    private final String id;
+
+    public AwtTextMetricsFactory(String fontFamily) {
+
+        Map<TextAttribute, Object> textAttributes = new HashMap<>();
+        textAttributes.put(TextAttribute.FAMILY, fontFamily);
+        textAttributes.put(TextAttribute.SIZE, 10);
+        textAttributes.put(TextAttribute.KERNING, TextAttribute.KERNING_ON);
+
+        this.canvas = new Canvas();
+        this.font = new Font(textAttributes);
+        this.id = "awt:" + fontFamily;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public TextMetrics getTextMetrics(double sizeInPixels) {
+
+        FontMetrics fontMetrics = canvas.getFontMetrics(font.deriveFont((float) sizeInPixels));
+
+        return new TextMetrics() {
+
+            @Override
+            public double getSize() {
+                return fontMetrics.getFont().getSize2D();
+            }
+
+            @Override
+            public int getAscent() {
+                return fontMetrics.getAscent();
+            }
+
+            @Override
+            public int getDescent() {
+                return fontMetrics.getDescent();
+            }
+
+            @Override
+            public int stringWidth(String text) {
+                return fontMetrics.stringWidth(text);
+            }
+        };
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes the SVG directly into a UTF-8 byte buffer which is flushed to the output stream whenever it gets full.
+ * Numbers are written digit by digit, doubles with a fixed precision of two decimal places and without trailing zeros,
+ * so no intermediate strings are created for coordinates.
+ */
+public class ByteSvgWriter implements SvgWriter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    // the longest escaped sequence (&quot;) or encoded character (surrogate pair)
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final double DECIMAL_PLACES_FACTOR = 100.0;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position = 0;
+
+    private String[] elementStack = new String[16];
+    private int depth = 0;
+    private boolean startTagOpen = false;
+    private long elementCount = 0;
+
+    public ByteSvgWriter(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteSvgWriter(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    @Override
+    public void writeStartDocument() throws IOException {
+        writeAscii("<?xml version=\"1.0\" ?>");
+    }
+
+    @Override
+    public void writeStartElement(String name) throws IOException {
+
+        closeStartTag();
+
+        if (depth == elementStack.length) {
+            elementStack = Arrays.copyOf(elementStack, 2 * depth);
+        }
+
+        elementStack[depth++] = name;
+        startTagOpen = true;
+        elementCount++;
+
+        writeByte('<');
+        writeAscii(name);
+    }
+
+    @Override
+    public void writeAttribute(String name, String value) throws IOException {
+        writeStartAttribute(name);
+        append(value);
+        writeEndAttribute();
+    }
+
+    @Override
+    public void writeAttribute(String name, int value) throws IOException {
+        writeStartAttribute(name);
+        append(value);
+        writeEndAttribute();
+    }
+
+    @Override
+    public void writeAttribute(String name, double value) throws IOException {
+        writeStartAttribute(name);
+        append(value);
+        writeEndAttribute();
+    }
+
+    @Override
+    public void writeStartAttribute(String name) throws IOException {
+
+        if (!startTagOpen) {
+            throw new IllegalStateException("Attribute " + name + " written outside of a start tag");
+        }
+
+        writeByte(' ');
+        writeAscii(name);
+        writeByte('=');
+        writeByte('"');
+    }
+
+    @Override
+    public SvgWriter append(String value) throws IOException {
+        writeEscaped(value, true);
+        return this;
+    }
+
+    @Override
+    public SvgWriter append(char value) throws IOException {
+        ensureCapacity(MAX_CHAR_BYTES);
+        writeEscapedChar(value, true);
+        return this;
+    }
+
+    @Override
+    public SvgWriter append(int value) throws IOException {
+        writeLong(value);
+        return this;
+    }
+
+    @Override
+    public SvgWriter append(double value) throws IOException {
+
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= Long.MAX_VALUE / 1000) {
+            writeAscii(Double.toString(value));
+            return this;
+        }
+
+        long scaledValue = Math.round(value * DECIMAL_PLACES_FACTOR);
+
+        if (scaledValue < 0) {
+            writeByte('-');
+            scaledValue = -scaledValue;
+        }
+
+        writeLong(scaledValue / 100);
+
+        int fraction = (int) (scaledValue % 100);
+
+        if (fraction != 0) {
+            ensureCapacity(3);
+            buffer[position++] = '.';
+            buffer[position++] = (byte) ('0' + fraction / 10);
+            if (fraction % 10 != 0) {
+                buffer[position++] = (byte) ('0' + fraction % 10);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends the number in the same format as {@link #append(double)} writes it.
+     */
+    static void appendNumber(StringBuilder output, double value) {
+
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= Long.MAX_VALUE / 1000) {
+            output.append(value);
+            return;
+        }
+
+        long scaledValue = Math.round(value * DECIMAL_PLACES_FACTOR);
+
+        if (scaledValue < 0) {
+            output.append('-');
+            scaledValue = -scaledValue;
+        }
+
+        output.append(scaledValue / 100);
+
+        int fraction = (int) (scaledValue % 100);
+
+        if (fraction != 0) {
+            output.append('.').append((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                output.append((char) ('0' + fraction % 10));
+            }
+        }
+    }
+
+    @Override
+    public void writeEndAttribute() throws IOException {
+        writeByte('"');
+    }
+
+    @Override
+    public void writeCharacters(String text) throws IOException {
+        closeStartTag();
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void writeEndElement() throws IOException {
+
+        if (depth == 0) {
+            throw new IllegalStateException("No element to close");
+        }
+
+        String name = elementStack[--depth];
+
+        if (startTagOpen) {
+            startTagOpen = false;
+            writeByte('/');
+            writeByte('>');
+
+        } else {
+            writeByte('<');
+            writeByte('/');
+            writeAscii(name);
+            writeByte('>');
+        }
+    }
+
+    @Override
+    public void writeEndDocument() throws IOException {
+        while (depth > 0) {
+            writeEndElement();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            startTagOpen = false;
+            writeByte('>');
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    // names and numbers only, no escaping needed
+    private void writeAscii(String value) throws IOException {
+
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+
+        int end = position + digits;
+
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+
+        position = end;
+    }
+
+    private void writeEscaped(String value, boolean attribute) throws IOException {
+
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+
+            if (buffer.length - position < MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+
+            char c = value.charAt(i);
+
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+
+            } else {
+                writeEscapedChar(c, attribute);
+            }
+        }
+    }
+
+    private void writeEscapedChar(char c, boolean attribute) {
+
+        if (c < 0x80) {
+            switch (c) {
+                case '&':
+                    putAscii("&amp;");
+                    break;
+                case '<':
+                    putAscii("&lt;");
+                    break;
+                case '>':
+                    putAscii("&gt;");
+                    break;
+                case '"':
+                    if (attribute) {
+                        putAscii("&quot;");
+                    } else {
+                        buffer[position++] = (byte) c;
+                    }
+                    break;
+                default:
+                    buffer[position++] = (byte) c;
+            }
+
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogate cannot be encoded
+            buffer[position++] = '?';
+
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (buffer.length - position < length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall time, allocated bytes and peak heap of the export stages and rendered genomaps, written as JSON so the export
+ * performance can be tracked across data growth. Allocations are measured for all threads within a stage, but just for
+ * the rendering thread within a genomap. Peak heap is measured for genomaps only if they are rendered one by one.
+ */
+public class ExportReport {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final List<StageEntry> stageEntryList = new ArrayList<>();
+    private final List<GenoMapEntry> genoMapEntryList = new ArrayList<>();
+
+    // the highest heap usage observed since the start of the current stage
+    private long stagePeakHeapBytes = 0;
+
+    public synchronized Measurement startStage() {
+        stagePeakHeapBytes = 0;
+        resetPeakHeap();
+        return new Measurement(false, true);
+    }
+
+    public synchronized void endStage(String name, Measurement measurement) {
+        stagePeakHeapBytes = Math.max(stagePeakHeapBytes, getPeakHeapBytes());
+        stageEntryList.add(new StageEntry(name, measurement.getElapsedNanos(), measurement.getAllocatedBytes(),
+                stagePeakHeapBytes));
+    }
+
+    /**
+     * @param exclusive true if no other genomap is rendered in the meantime, so the peak heap can be measured
+     */
+    public synchronized Measurement startGenoMap(boolean exclusive) {
+
+        if (exclusive) {
+            stagePeakHeapBytes = Math.max(stagePeakHeapBytes, getPeakHeapBytes());
+            resetPeakHeap();
+        }
+
+        return new Measurement(true, exclusive);
+    }
+
+    public synchronized void endGenoMap(GenoMapData genoMapData, long svgElementCount, Measurement measurement) {
+
+        long peakHeapBytes = -1;
+
+        if (measurement.heapMeasured) {
+            peakHeapBytes = getPeakHeapBytes();
+            stagePeakHeapBytes = Math.max(stagePeakHeapBytes, peakHeapBytes);
+        }
+
+        genoMapEntryList.add(new GenoMapEntry(genoMapData.genoMap().id(), genoMapData.labelSet().size(),
+                genoMapData.familySet().size(), genoMapData.individualSet().size(), svgElementCount,
+                measurement.getElapsedNanos(), measurement.getAllocatedBytes(), peakHeapBytes));
+    }
+
+    /**
+     * Writes the report including sizes of the files written by the export.
+     *
+     * @param fileSizeMap sizes of the written files by their path within the output
+     */
+    public synchronized void write(Path reportPath, Map<String, Long> fileSizeMap) throws IOException {
+
+        StringBuilder json = new StringBuilder("{\"stages\":[");
+
+        for (int i = 0; i < stageEntryList.size(); i++) {
+
+            StageEntry entry = stageEntryList.get(i);
+
+            json.append((i > 0) ? ",\n" : "\n").append("{\"name\":");
+            JsonUtil.appendString(json, entry.name());
+            appendMeasurement(json, entry.elapsedNanos(), entry.allocatedBytes(), entry.peakHeapBytes());
+            json.append('}');
+        }
+
+        json.append("],\n\"genoMaps\":[");
+
+        for (int i = 0; i < genoMapEntryList.size(); i++) {
+
+            GenoMapEntry entry = genoMapEntryList.get(i);
+
+            json.append((i > 0) ? ",\n" : "\n").append("{\"id\":");
+            JsonUtil.appendString(json, entry.id());
+            json.append(",\"labels\":").append(entry.labelCount());
+            json.append(",\"families\":").append(entry.familyCount());
+            json.append(",\"individuals\":").append(entry.individualCount());
+            json.append(",\"svgElements\":").append(entry.svgElementCount());
+            appendMeasurement(json, entry.elapsedNanos(), entry.allocatedBytes(), entry.peakHeapBytes());
+            json.append('}');
+        }
+
+        json.append("],\n\"files\":[");
+
+        boolean first = true;
+
+        for (Map.Entry<String, Long> entry : fileSizeMap.entrySet()) {
+
+            json.append(first ? "\n" : ",\n").append("{\"path\":");
+            JsonUtil.appendString(json, entry.getKey());
+            json.append(",\"bytes\":").append(entry.getValue());
+            json.append('}');
+
+            first = false;
+        }
+
+        json.append("]}\n");
+
+        try (Writer writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+            writer.append(json);
+        }
+    }
+
+    private static void appendMeasurement(StringBuilder json, long elapsedNanos, long allocatedBytes,
+            long peakHeapBytes) {
+
+        json.append(",\"wallTimeMs\":").append(elapsedNanos / 1_000_000);
+        json.append(",\"allocatedBytes\":").append((allocatedBytes >= 0) ? String.valueOf(allocatedBytes) : "null");
+        json.append(",\"peakHeapBytes\":").append((peakHeapBytes >= 0) ? String.valueOf(peakHeapBytes) : "null");
+    }
+
+    private static long getAllocatedBytes(boolean currentThreadOnly) {
+
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+
+            return currentThreadOnly
+                    ? threadMXBean.getCurrentThreadAllocatedBytes() : threadMXBean.getTotalThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+
+    // the sum of pool peaks, which may not have been reached at the same time
+    private static long getPeakHeapBytes() {
+
+        long peakHeapBytes = 0;
+
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP && memoryPoolMXBean.isValid()) {
+                peakHeapBytes += memoryPoolMXBean.getPeakUsage().getUsed();
+            }
+        }
+
+        return peakHeapBytes;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP && memoryPoolMXBean.isValid()) {
+                memoryPoolMXBean.resetPeakUsage();
+            }
+        }
+    }
+
+    public static final class Measurement {
+
+        private final boolean currentThreadOnly;
+        private final boolean heapMeasured;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Measurement(boolean currentThreadOnly, boolean heapMeasured) {
+            this.currentThreadOnly = currentThreadOnly;
+            this.heapMeasured = heapMeasured;
+            this.startAllocatedBytes = ExportReport.getAllocatedBytes(currentThreadOnly);
+            this.startNanos = System.nanoTime();
+        }
+
+        private long getElapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+        private long getAllocatedBytes() {
+            return (startAllocatedBytes >= 0) ? ExportReport.getAllocatedBytes(currentThreadOnly) - startAllocatedBytes : -1;
+        }
+    }
+
+    private record StageEntry(String name, long elapsedNanos, long allocatedBytes, long peakHeapBytes) {
+
+    }
+
+    private record GenoMapEntry(String id, int labelCount, int familyCount, int individualCount, long svgElementCount,
+            long elapsedNanos, long allocatedBytes, long peakHeapBytes) {
+
+    }
+}
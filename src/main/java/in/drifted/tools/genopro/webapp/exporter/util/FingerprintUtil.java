@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import in.drifted.tools.genopro.core.model.Birth;
+import in.drifted.tools.genopro.core.model.BoundaryRect;
+import in.drifted.tools.genopro.core.model.Color;
+import in.drifted.tools.genopro.core.model.Death;
+import in.drifted.tools.genopro.core.model.Family;
+import in.drifted.tools.genopro.core.model.GenoMap;
+import in.drifted.tools.genopro.core.model.GenoMapData;
+import in.drifted.tools.genopro.core.model.Individual;
+import in.drifted.tools.genopro.core.model.Label;
+import in.drifted.tools.genopro.core.model.LabelStyle;
+import in.drifted.tools.genopro.core.model.Name;
+import in.drifted.tools.genopro.core.model.PedigreeLink;
+import in.drifted.tools.genopro.core.model.Position;
+import in.drifted.tools.genopro.webapp.exporter.model.GeneratingOptions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+
+public class FingerprintUtil {
+
+    // to be increased whenever the SVG output changes for the same input
+    private static final int FORMAT_VERSION = 5;
+
+    private static final char SEPARATOR = '\u001f';
+
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    // in bytes
+    private static final int FILE_FINGERPRINT_LENGTH = 8;
+
+    public static String getFingerprint(GenoMapData genoMapData, GeneratingOptions generatingOptions) {
+
+        // sets have no stable iteration order so entries are sorted before digesting
+        List<String> entryList = new ArrayList<>();
+
+        for (Label label : genoMapData.labelSet()) {
+            entryList.add(getLabelEntry(label));
+        }
+
+        for (Family family : genoMapData.familySet()) {
+            entryList.add(getFamilyEntry(family));
+        }
+
+        for (Individual individual : genoMapData.individualSet()) {
+            entryList.add(getIndividualEntry(individual, generatingOptions));
+        }
+
+        Collections.sort(entryList);
+
+        MessageDigest messageDigest = getMessageDigest();
+
+        update(messageDigest, getOptionsEntry(generatingOptions));
+        update(messageDigest, getGenoMapEntry(genoMapData.genoMap()));
+
+        for (String entry : entryList) {
+            update(messageDigest, entry);
+        }
+
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    /**
+     * @return shortened digest of the file content, used as the revision of the cached file
+     */
+    public static String getContentFingerprint(InputStream inputStream) throws IOException {
+
+        MessageDigest messageDigest = getMessageDigest();
+
+        byte[] buffer = new byte[FILE_BUFFER_SIZE];
+        int length;
+
+        while ((length = inputStream.read(buffer)) > 0) {
+            messageDigest.update(buffer, 0, length);
+        }
+
+        return getContentFingerprint(messageDigest);
+    }
+
+    /**
+     * @return digest to be updated with the content while it is written
+     */
+    public static MessageDigest getContentDigest() {
+        return getMessageDigest();
+    }
+
+    /**
+     * @return shortened digest of the content the digest has been updated with
+     */
+    public static String getContentFingerprint(MessageDigest messageDigest) {
+        return HexFormat.of().formatHex(messageDigest.digest(), 0, FILE_FINGERPRINT_LENGTH);
+    }
+
+    /**
+     * @return shortened digest of the content, in the same form as the fingerprint of the content read from a stream
+     */
+    public static String getContentFingerprint(byte[] content) {
+        return HexFormat.of().formatHex(getMessageDigest().digest(content), 0, FILE_FINGERPRINT_LENGTH);
+    }
+
+    private static String getOptionsEntry(GeneratingOptions generatingOptions) {
+
+        TreeSet<String> unsupportedLabelHexColorSet = new TreeSet<>();
+
+        for (Color color : generatingOptions.getUnsupportedLabelColorSet()) {
+            unsupportedLabelHexColorSet.add(color.toHex());
+        }
+
+        StringBuilder entry = new StringBuilder("options");
+        append(entry, FORMAT_VERSION);
+        append(entry, generatingOptions.getLocale().toLanguageTag());
+        append(entry, generatingOptions.getFontFamily());
+        append(entry, generatingOptions.getAdditionalOptionsMap().get("relativeFontPath"));
+        // the installed font is used when the font file is missing, so the layout depends on the file presence too
+        append(entry, generatingOptions.getTextMetricsId());
+        append(entry, generatingOptions.getDisplayStyle());
+        append(entry, generatingOptions.getResourceBundle().getString("deathAbbrev"));
+        append(entry, unsupportedLabelHexColorSet);
+        append(entry, generatingOptions.hasMonochromeLabels());
+        append(entry, generatingOptions.getAdditionalOptionsMap().getOrDefault("highlightMode", "0"));
+        append(entry, generatingOptions.getAdditionalOptionsMap().getOrDefault("tileCapacity", "0"));
+        append(entry, generatingOptions.getAdditionalOptionsMap().getOrDefault("batchFamilyLines", "false"));
+        append(entry, generatingOptions.getPedigreeLinksSelectionMode());
+
+        return entry.toString();
+    }
+
+    private static String getGenoMapEntry(GenoMap genoMap) {
+
+        StringBuilder entry = new StringBuilder("genomap");
+        append(entry, genoMap.id());
+        append(entry, genoMap.title());
+        append(entry, genoMap.boundaryRect());
+
+        return entry.toString();
+    }
+
+    private static String getLabelEntry(Label label) {
+
+        LabelStyle labelStyle = label.labelStyle();
+
+        StringBuilder entry = new StringBuilder("label");
+        append(entry, label.text());
+        append(entry, label.rect().x());
+        append(entry, label.rect().y());
+        append(entry, label.rect().width());
+        append(entry, label.rect().height());
+        append(entry, labelStyle.fillColor().toHex());
+        append(entry, labelStyle.border().color().toHex());
+        append(entry, labelStyle.border().size());
+        append(entry, labelStyle.padding());
+        append(entry, labelStyle.size());
+        append(entry, labelStyle.horizontalAlignment());
+        append(entry, labelStyle.verticalAlignment());
+
+        return entry.toString();
+    }
+
+    private static String getFamilyEntry(Family family) {
+
+        StringBuilder entry = new StringBuilder("family");
+        append(entry, family.id());
+        append(entry, family.fatherId());
+        append(entry, family.motherId());
+        append(entry, family.position());
+        append(entry, family.topBoundaryRect());
+        append(entry, family.bottomBoundaryRect());
+        append(entry, family.label());
+        append(entry, family.familyLineType());
+
+        for (PedigreeLink pedigreeLink : family.pedigreeLinkList()) {
+            append(entry, pedigreeLink.individualId());
+            append(entry, pedigreeLink.pedigreeLinkType());
+            append(entry, pedigreeLink.isParent());
+            append(entry, pedigreeLink.position());
+            append(entry, pedigreeLink.twinPosition());
+        }
+
+        return entry.toString();
+    }
+
+    private static String getIndividualEntry(Individual individual, GeneratingOptions generatingOptions) {
+
+        Name name = individual.name();
+        Birth birth = individual.birth();
+        Death death = individual.death();
+
+        StringBuilder entry = new StringBuilder("individual");
+        append(entry, individual.id());
+        append(entry, individual.gender());
+        append(entry, individual.isDeceased());
+        append(entry, individual.isAnonymized());
+        append(entry, individual.position());
+        append(entry, individual.boundaryRect());
+        append(entry, (individual.hyperlink() != null) ? individual.hyperlink().id() : null);
+        append(entry, new TreeSet<>(individual.highlightKeySet()));
+
+        if (name != null) {
+            append(entry, name.first());
+            append(entry, name.middle());
+            append(entry, name.last());
+            append(entry, name.last2());
+        }
+
+        append(entry, (birth != null && birth.hasDate()) ? birth.date().format(generatingOptions.getDateFormatter()) : null);
+        append(entry, (death != null && death.hasDate()) ? death.date().format(generatingOptions.getDateFormatter()) : null);
+        append(entry, generatingOptions.getAgeFormatter().format(birth, death));
+
+        return entry.toString();
+    }
+
+    private static void append(StringBuilder entry, Object value) {
+        entry.append(SEPARATOR);
+        entry.append(value);
+    }
+
+    private static void append(StringBuilder entry, Position position) {
+        if (position != null) {
+            append(entry, position.x());
+            append(entry, position.y());
+        } else {
+            append(entry, (Object) null);
+        }
+    }
+
+    private static void append(StringBuilder entry, BoundaryRect boundaryRect) {
+        if (boundaryRect != null) {
+            append(entry, boundaryRect.topLeft());
+            append(entry, boundaryRect.bottomRight());
+        } else {
+            append(entry, (Object) null);
+        }
+    }
+
+    private static void update(MessageDigest messageDigest, String entry) {
+        messageDigest.update(entry.getBytes(StandardCharsets.UTF_8));
+        messageDigest.update((byte) '\n');
+    }
+
+    private static MessageDigest getMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
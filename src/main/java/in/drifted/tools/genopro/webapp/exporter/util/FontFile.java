@@ -0,0 +1,752 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Pure Java text metrics read directly from a TrueType/OpenType font or its WOFF 1.0 wrapper. Advance widths come
+ * from the hmtx table, kerning from the GPOS pair adjustments of the 'kern' feature or from the legacy kern table.
+ */
+public class FontFile implements TextMetricsFactory {
+
+    private static final int SFNT_VERSION_TRUE_TYPE = 0x00010000;
+    private static final int SFNT_VERSION_OPEN_TYPE = 0x4F54544F;
+    private static final int SFNT_VERSION_APPLE = 0x74727565;
+    private static final int WOFF_SIGNATURE = 0x774F4646;
+    private static final int WOFF2_SIGNATURE = 0x774F4632;
+
+    private static final int GPOS_LOOKUP_TYPE_PAIR_ADJUSTMENT = 2;
+    private static final int GPOS_LOOKUP_TYPE_EXTENSION = 9;
+
+    private static final int BMP_SIZE = 0x10000;
+
+    private final String id;
+    private final int unitsPerEm;
+    private final int ascender;
+    private final int descender;
+    private final int[] advanceWidths;
+    private final CharacterMap characterMap;
+    private final List<PairAdjustment> pairAdjustmentList;
+    private final char[] bmpGlyphIndices;
+    private final char[] bmpAdvanceWidths;
+
+    private FontFile(String id, Map<String, ByteBuffer> tableMap) throws IOException {
+
+        this.id = id;
+
+        ByteBuffer head = getTable(tableMap, "head");
+        ByteBuffer hhea = getTable(tableMap, "hhea");
+        ByteBuffer maxp = getTable(tableMap, "maxp");
+
+        unitsPerEm = head.getShort(18) & 0xFFFF;
+        ascender = hhea.getShort(4);
+        descender = hhea.getShort(6);
+
+        int numberOfHMetrics = hhea.getShort(34) & 0xFFFF;
+        int numGlyphs = maxp.getShort(4) & 0xFFFF;
+
+        advanceWidths = readAdvanceWidths(getTable(tableMap, "hmtx"), numberOfHMetrics, numGlyphs);
+        characterMap = readCharacterMap(getTable(tableMap, "cmap"));
+
+        pairAdjustmentList = new ArrayList<>();
+
+        if (tableMap.containsKey("GPOS")) {
+            readGlyphPositioningKerning(tableMap.get("GPOS"), numGlyphs, pairAdjustmentList);
+        }
+
+        if (pairAdjustmentList.isEmpty() && tableMap.containsKey("kern")) {
+            readLegacyKerning(tableMap.get("kern"), pairAdjustmentList);
+        }
+
+        // glyph indices and advance widths fit into 16 bits so the BMP lookup tables take 256 kB in total
+        bmpGlyphIndices = new char[BMP_SIZE];
+        bmpAdvanceWidths = new char[BMP_SIZE];
+
+        for (int c = 0; c < BMP_SIZE; c++) {
+            int glyphIndex = getGlyphIndex(c);
+            bmpGlyphIndices[c] = (char) glyphIndex;
+            bmpAdvanceWidths[c] = (char) getAdvanceWidth(glyphIndex);
+        }
+    }
+
+    public static FontFile load(Path path) throws IOException {
+        return load(Files.readAllBytes(path));
+    }
+
+    public static FontFile load(InputStream inputStream) throws IOException {
+        return load(inputStream.readAllBytes());
+    }
+
+    private static FontFile load(byte[] data) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        String id = "font:" + FingerprintUtil.getContentFingerprint(data);
+
+        try {
+            int signature = buffer.getInt(0);
+
+            switch (signature) {
+                case WOFF_SIGNATURE:
+                    return new FontFile(id, readWoffTables(buffer));
+
+                case SFNT_VERSION_TRUE_TYPE:
+                case SFNT_VERSION_OPEN_TYPE:
+                case SFNT_VERSION_APPLE:
+                    return new FontFile(id, readSfntTables(buffer));
+
+                case WOFF2_SIGNATURE:
+                    throw new IOException("WOFF2 fonts are not supported, use the TTF, OTF or WOFF variant");
+
+                default:
+                    throw new IOException("Unsupported font format");
+            }
+
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupted font file", e);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public TextMetrics getTextMetrics(double sizeInPixels) {
+        return new FontFileTextMetrics(this, sizeInPixels);
+    }
+
+    int getUnitsPerEm() {
+        return unitsPerEm;
+    }
+
+    int getAscender() {
+        return ascender;
+    }
+
+    int getDescender() {
+        return descender;
+    }
+
+    int getGlyphIndex(int codePoint) {
+        return characterMap.getGlyphIndex(codePoint);
+    }
+
+    int getAdvanceWidth(int glyphIndex) {
+        return advanceWidths[(glyphIndex < advanceWidths.length) ? glyphIndex : 0];
+    }
+
+    char[] getBmpGlyphIndices() {
+        return bmpGlyphIndices;
+    }
+
+    char[] getBmpAdvanceWidths() {
+        return bmpAdvanceWidths;
+    }
+
+    int getKerning(int leftGlyphIndex, int rightGlyphIndex) {
+
+        for (PairAdjustment pairAdjustment : pairAdjustmentList) {
+            int kerning = pairAdjustment.getAdjustment(leftGlyphIndex, rightGlyphIndex);
+            if (kerning != PairAdjustment.NOT_APPLICABLE) {
+                return kerning;
+            }
+        }
+
+        return 0;
+    }
+
+    boolean hasKerning() {
+        return !pairAdjustmentList.isEmpty();
+    }
+
+    private static Map<String, ByteBuffer> readSfntTables(ByteBuffer buffer) {
+
+        Map<String, ByteBuffer> tableMap = new HashMap<>();
+
+        int numTables = buffer.getShort(4) & 0xFFFF;
+
+        for (int i = 0; i < numTables; i++) {
+            int entryOffset = 12 + i * 16;
+            String tag = readTag(buffer, entryOffset);
+            int offset = buffer.getInt(entryOffset + 8);
+            int length = buffer.getInt(entryOffset + 12);
+            tableMap.put(tag, buffer.slice(offset, length));
+        }
+
+        return tableMap;
+    }
+
+    private static Map<String, ByteBuffer> readWoffTables(ByteBuffer buffer) throws IOException {
+
+        Map<String, ByteBuffer> tableMap = new HashMap<>();
+
+        int numTables = buffer.getShort(12) & 0xFFFF;
+
+        for (int i = 0; i < numTables; i++) {
+
+            int entryOffset = 44 + i * 20;
+            String tag = readTag(buffer, entryOffset);
+            int offset = buffer.getInt(entryOffset + 4);
+            int compLength = buffer.getInt(entryOffset + 8);
+            int origLength = buffer.getInt(entryOffset + 12);
+
+            if (compLength < origLength) {
+
+                byte[] compressedData = new byte[compLength];
+                buffer.get(offset, compressedData);
+
+                byte[] data = new byte[origLength];
+                Inflater inflater = new Inflater();
+
+                try {
+                    inflater.setInput(compressedData);
+                    if (inflater.inflate(data) != origLength) {
+                        throw new IOException("Corrupted WOFF table " + tag);
+                    }
+
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupted WOFF table " + tag, e);
+
+                } finally {
+                    inflater.end();
+                }
+
+                tableMap.put(tag, ByteBuffer.wrap(data));
+
+            } else {
+                tableMap.put(tag, buffer.slice(offset, origLength));
+            }
+        }
+
+        return tableMap;
+    }
+
+    private static int[] readAdvanceWidths(ByteBuffer hmtx, int numberOfHMetrics, int numGlyphs) {
+
+        int[] advanceWidths = new int[Math.max(numGlyphs, numberOfHMetrics)];
+
+        for (int i = 0; i < numberOfHMetrics; i++) {
+            advanceWidths[i] = hmtx.getShort(i * 4) & 0xFFFF;
+        }
+
+        // monospaced tail repeats the last advance width
+        for (int i = numberOfHMetrics; i < advanceWidths.length; i++) {
+            advanceWidths[i] = advanceWidths[numberOfHMetrics - 1];
+        }
+
+        return advanceWidths;
+    }
+
+    private static CharacterMap readCharacterMap(ByteBuffer cmap) throws IOException {
+
+        int numTables = cmap.getShort(2) & 0xFFFF;
+
+        int segmentedOffset = -1;
+        int groupedOffset = -1;
+
+        for (int i = 0; i < numTables; i++) {
+
+            int platformId = cmap.getShort(4 + i * 8) & 0xFFFF;
+            int encodingId = cmap.getShort(6 + i * 8) & 0xFFFF;
+            int offset = cmap.getInt(8 + i * 8);
+            int format = cmap.getShort(offset) & 0xFFFF;
+
+            boolean unicode = (platformId == 0) || (platformId == 3 && (encodingId == 1 || encodingId == 10));
+
+            if (unicode) {
+                if (format == 12 && groupedOffset < 0) {
+                    groupedOffset = offset;
+                } else if (format == 4 && segmentedOffset < 0) {
+                    segmentedOffset = offset;
+                }
+            }
+        }
+
+        if (groupedOffset >= 0) {
+            return readGroupedCharacterMap(cmap.slice(groupedOffset, cmap.limit() - groupedOffset));
+
+        } else if (segmentedOffset >= 0) {
+            return readSegmentedCharacterMap(cmap.slice(segmentedOffset, cmap.limit() - segmentedOffset));
+        }
+
+        throw new IOException("No Unicode cmap subtable found");
+    }
+
+    private static CharacterMap readSegmentedCharacterMap(ByteBuffer subtable) {
+
+        int segCount = (subtable.getShort(6) & 0xFFFF) / 2;
+
+        int endCodeOffset = 14;
+        int startCodeOffset = endCodeOffset + 2 * segCount + 2;
+        int idDeltaOffset = startCodeOffset + 2 * segCount;
+        int idRangeOffsetOffset = idDeltaOffset + 2 * segCount;
+
+        int[] endCodes = new int[segCount];
+        int[] startCodes = new int[segCount];
+        int[] idDeltas = new int[segCount];
+        int[] idRangeOffsets = new int[segCount];
+
+        for (int i = 0; i < segCount; i++) {
+            endCodes[i] = subtable.getShort(endCodeOffset + 2 * i) & 0xFFFF;
+            startCodes[i] = subtable.getShort(startCodeOffset + 2 * i) & 0xFFFF;
+            idDeltas[i] = subtable.getShort(idDeltaOffset + 2 * i);
+            idRangeOffsets[i] = subtable.getShort(idRangeOffsetOffset + 2 * i) & 0xFFFF;
+        }
+
+        return codePoint -> {
+
+            if (codePoint > 0xFFFF) {
+                return 0;
+            }
+
+            int low = 0;
+            int high = segCount - 1;
+
+            while (low <= high) {
+
+                int middle = (low + high) >>> 1;
+
+                if (endCodes[middle] < codePoint) {
+                    low = middle + 1;
+
+                } else if (startCodes[middle] > codePoint) {
+                    high = middle - 1;
+
+                } else {
+
+                    if (idRangeOffsets[middle] == 0) {
+                        return (codePoint + idDeltas[middle]) & 0xFFFF;
+                    }
+
+                    int glyphOffset = idRangeOffsetOffset + 2 * middle + idRangeOffsets[middle]
+                            + 2 * (codePoint - startCodes[middle]);
+
+                    if (glyphOffset + 1 >= subtable.limit()) {
+                        return 0;
+                    }
+
+                    int glyphIndex = subtable.getShort(glyphOffset) & 0xFFFF;
+
+                    return (glyphIndex == 0) ? 0 : (glyphIndex + idDeltas[middle]) & 0xFFFF;
+                }
+            }
+
+            return 0;
+        };
+    }
+
+    private static CharacterMap readGroupedCharacterMap(ByteBuffer subtable) {
+
+        int numGroups = subtable.getInt(12);
+
+        int[] startCharCodes = new int[numGroups];
+        int[] endCharCodes = new int[numGroups];
+        int[] startGlyphIds = new int[numGroups];
+
+        for (int i = 0; i < numGroups; i++) {
+            startCharCodes[i] = subtable.getInt(16 + i * 12);
+            endCharCodes[i] = subtable.getInt(20 + i * 12);
+            startGlyphIds[i] = subtable.getInt(24 + i * 12);
+        }
+
+        return codePoint -> {
+
+            int low = 0;
+            int high = numGroups - 1;
+
+            while (low <= high) {
+
+                int middle = (low + high) >>> 1;
+
+                if (endCharCodes[middle] < codePoint) {
+                    low = middle + 1;
+
+                } else if (startCharCodes[middle] > codePoint) {
+                    high = middle - 1;
+
+                } else {
+                    return startGlyphIds[middle] + (codePoint - startCharCodes[middle]);
+                }
+            }
+
+            return 0;
+        };
+    }
+
+    private static void readGlyphPositioningKerning(ByteBuffer gpos, int numGlyphs, List<PairAdjustment> pairAdjustmentList) {
+
+        int featureListOffset = gpos.getShort(6) & 0xFFFF;
+        int lookupListOffset = gpos.getShort(8) & 0xFFFF;
+
+        Set<Integer> lookupIndexSet = new LinkedHashSet<>();
+
+        int featureCount = gpos.getShort(featureListOffset) & 0xFFFF;
+
+        for (int i = 0; i < featureCount; i++) {
+
+            int recordOffset = featureListOffset + 2 + i * 6;
+
+            if (readTag(gpos, recordOffset).equals("kern")) {
+
+                int featureOffset = featureListOffset + (gpos.getShort(recordOffset + 4) & 0xFFFF);
+                int lookupIndexCount = gpos.getShort(featureOffset + 2) & 0xFFFF;
+
+                for (int j = 0; j < lookupIndexCount; j++) {
+                    lookupIndexSet.add(gpos.getShort(featureOffset + 4 + j * 2) & 0xFFFF);
+                }
+            }
+        }
+
+        List<Integer> lookupIndexList = new ArrayList<>(lookupIndexSet);
+        lookupIndexList.sort(null);
+
+        for (int lookupIndex : lookupIndexList) {
+
+            int lookupOffset = lookupListOffset + (gpos.getShort(lookupListOffset + 2 + lookupIndex * 2) & 0xFFFF);
+            int lookupType = gpos.getShort(lookupOffset) & 0xFFFF;
+            int subTableCount = gpos.getShort(lookupOffset + 4) & 0xFFFF;
+
+            for (int i = 0; i < subTableCount; i++) {
+
+                int subTableOffset = lookupOffset + (gpos.getShort(lookupOffset + 6 + i * 2) & 0xFFFF);
+                int subTableType = lookupType;
+
+                if (lookupType == GPOS_LOOKUP_TYPE_EXTENSION) {
+                    subTableType = gpos.getShort(subTableOffset + 2) & 0xFFFF;
+                    subTableOffset += gpos.getInt(subTableOffset + 4);
+                }
+
+                if (subTableType == GPOS_LOOKUP_TYPE_PAIR_ADJUSTMENT) {
+
+                    int posFormat = gpos.getShort(subTableOffset) & 0xFFFF;
+
+                    if (posFormat == 1) {
+                        pairAdjustmentList.add(readGlyphPairAdjustment(gpos, subTableOffset));
+
+                    } else if (posFormat == 2) {
+                        pairAdjustmentList.add(readClassPairAdjustment(gpos, subTableOffset, numGlyphs));
+                    }
+                }
+            }
+        }
+    }
+
+    private static PairAdjustment readGlyphPairAdjustment(ByteBuffer gpos, int offset) {
+
+        int[] coveredGlyphs = readCoverage(gpos, offset + (gpos.getShort(offset + 2) & 0xFFFF));
+        int valueFormat1 = gpos.getShort(offset + 4) & 0xFFFF;
+        int valueFormat2 = gpos.getShort(offset + 6) & 0xFFFF;
+        int pairSetCount = gpos.getShort(offset + 8) & 0xFFFF;
+
+        int recordSize = 2 + getValueRecordSize(valueFormat1) + getValueRecordSize(valueFormat2);
+        int xAdvanceOffset = getXAdvanceOffset(valueFormat1);
+
+        PairKerningBuilder pairKerningBuilder = new PairKerningBuilder();
+
+        for (int i = 0; i < pairSetCount && i < coveredGlyphs.length; i++) {
+
+            int pairSetOffset = offset + (gpos.getShort(offset + 10 + i * 2) & 0xFFFF);
+            int pairValueCount = gpos.getShort(pairSetOffset) & 0xFFFF;
+
+            for (int j = 0; j < pairValueCount; j++) {
+
+                int recordOffset = pairSetOffset + 2 + j * recordSize;
+                int secondGlyph = gpos.getShort(recordOffset) & 0xFFFF;
+                short kerning = (xAdvanceOffset >= 0) ? gpos.getShort(recordOffset + 2 + xAdvanceOffset) : 0;
+
+                pairKerningBuilder.add(coveredGlyphs[i], secondGlyph, kerning);
+            }
+        }
+
+        return pairKerningBuilder.build();
+    }
+
+    private static PairAdjustment readClassPairAdjustment(ByteBuffer gpos, int offset, int numGlyphs) {
+
+        int[] coveredGlyphs = readCoverage(gpos, offset + (gpos.getShort(offset + 2) & 0xFFFF));
+        int valueFormat1 = gpos.getShort(offset + 4) & 0xFFFF;
+        int valueFormat2 = gpos.getShort(offset + 6) & 0xFFFF;
+        int[] classDef1 = readClassDef(gpos, offset + (gpos.getShort(offset + 8) & 0xFFFF), numGlyphs);
+        int[] classDef2 = readClassDef(gpos, offset + (gpos.getShort(offset + 10) & 0xFFFF), numGlyphs);
+        int class1Count = gpos.getShort(offset + 12) & 0xFFFF;
+        int class2Count = gpos.getShort(offset + 14) & 0xFFFF;
+
+        int recordSize = getValueRecordSize(valueFormat1) + getValueRecordSize(valueFormat2);
+        int xAdvanceOffset = getXAdvanceOffset(valueFormat1);
+
+        short[] kernings = new short[class1Count * class2Count];
+
+        if (xAdvanceOffset >= 0) {
+            for (int i = 0; i < kernings.length; i++) {
+                kernings[i] = gpos.getShort(offset + 16 + i * recordSize + xAdvanceOffset);
+            }
+        }
+
+        boolean[] coverage = new boolean[numGlyphs];
+
+        for (int glyphIndex : coveredGlyphs) {
+            if (glyphIndex < numGlyphs) {
+                coverage[glyphIndex] = true;
+            }
+        }
+
+        return (leftGlyphIndex, rightGlyphIndex) -> {
+
+            if (leftGlyphIndex >= numGlyphs || rightGlyphIndex >= numGlyphs || !coverage[leftGlyphIndex]) {
+                return PairAdjustment.NOT_APPLICABLE;
+            }
+
+            int class1 = classDef1[leftGlyphIndex];
+            int class2 = classDef2[rightGlyphIndex];
+
+            return (class1 < class1Count && class2 < class2Count) ? kernings[class1 * class2Count + class2] : 0;
+        };
+    }
+
+    private static int[] readCoverage(ByteBuffer buffer, int offset) {
+
+        int coverageFormat = buffer.getShort(offset) & 0xFFFF;
+        int count = buffer.getShort(offset + 2) & 0xFFFF;
+
+        if (coverageFormat == 1) {
+
+            int[] glyphs = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                glyphs[i] = buffer.getShort(offset + 4 + i * 2) & 0xFFFF;
+            }
+
+            return glyphs;
+        }
+
+        List<Integer> glyphList = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+
+            int startGlyphId = buffer.getShort(offset + 4 + i * 6) & 0xFFFF;
+            int endGlyphId = buffer.getShort(offset + 6 + i * 6) & 0xFFFF;
+
+            for (int glyphIndex = startGlyphId; glyphIndex <= endGlyphId; glyphIndex++) {
+                glyphList.add(glyphIndex);
+            }
+        }
+
+        return glyphList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] readClassDef(ByteBuffer buffer, int offset, int numGlyphs) {
+
+        int[] classes = new int[numGlyphs];
+
+        int classFormat = buffer.getShort(offset) & 0xFFFF;
+
+        if (classFormat == 1) {
+
+            int startGlyphId = buffer.getShort(offset + 2) & 0xFFFF;
+            int glyphCount = buffer.getShort(offset + 4) & 0xFFFF;
+
+            for (int i = 0; i < glyphCount && startGlyphId + i < numGlyphs; i++) {
+                classes[startGlyphId + i] = buffer.getShort(offset + 6 + i * 2) & 0xFFFF;
+            }
+
+        } else if (classFormat == 2) {
+
+            int classRangeCount = buffer.getShort(offset + 2) & 0xFFFF;
+
+            for (int i = 0; i < classRangeCount; i++) {
+
+                int startGlyphId = buffer.getShort(offset + 4 + i * 6) & 0xFFFF;
+                int endGlyphId = buffer.getShort(offset + 6 + i * 6) & 0xFFFF;
+                int glyphClass = buffer.getShort(offset + 8 + i * 6) & 0xFFFF;
+
+                for (int glyphIndex = startGlyphId; glyphIndex <= endGlyphId && glyphIndex < numGlyphs; glyphIndex++) {
+                    classes[glyphIndex] = glyphClass;
+                }
+            }
+        }
+
+        return classes;
+    }
+
+    private static void readLegacyKerning(ByteBuffer kern, List<PairAdjustment> pairAdjustmentList) {
+
+        int version = kern.getShort(0) & 0xFFFF;
+
+        // only the common (Microsoft) version 0 with horizontal format 0 subtables is supported
+        if (version != 0) {
+            return;
+        }
+
+        int nTables = kern.getShort(2) & 0xFFFF;
+        int subtableOffset = 4;
+
+        PairKerningBuilder pairKerningBuilder = new PairKerningBuilder();
+
+        for (int i = 0; i < nTables; i++) {
+
+            int length = kern.getShort(subtableOffset + 2) & 0xFFFF;
+            int coverage = kern.getShort(subtableOffset + 4) & 0xFFFF;
+            int format = coverage >> 8;
+            boolean horizontal = (coverage & 0x1) != 0;
+
+            if (format == 0 && horizontal) {
+
+                int nPairs = kern.getShort(subtableOffset + 6) & 0xFFFF;
+
+                for (int j = 0; j < nPairs; j++) {
+                    int pairOffset = subtableOffset + 14 + j * 6;
+                    int left = kern.getShort(pairOffset) & 0xFFFF;
+                    int right = kern.getShort(pairOffset + 2) & 0xFFFF;
+                    pairKerningBuilder.add(left, right, kern.getShort(pairOffset + 4));
+                }
+            }
+
+            subtableOffset += length;
+        }
+
+        if (!pairKerningBuilder.isEmpty()) {
+            pairAdjustmentList.add(pairKerningBuilder.build());
+        }
+    }
+
+    private static int getValueRecordSize(int valueFormat) {
+        return 2 * Integer.bitCount(valueFormat & 0xFF);
+    }
+
+    private static int getXAdvanceOffset(int valueFormat) {
+        return ((valueFormat & 0x0004) != 0) ? 2 * Integer.bitCount(valueFormat & 0x0003) : -1;
+    }
+
+    private static ByteBuffer getTable(Map<String, ByteBuffer> tableMap, String tag) throws IOException {
+
+        ByteBuffer table = tableMap.get(tag);
+
+        if (table == null) {
+            throw new IOException("Missing font table " + tag);
+        }
+
+        return table;
+    }
+
+    private static String readTag(ByteBuffer buffer, int offset) {
+
+        char[] tag = new char[4];
+
+        for (int i = 0; i < 4; i++) {
+            tag[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+
+        return new String(tag);
+    }
+
+    @FunctionalInterface
+    private interface CharacterMap {
+
+        int getGlyphIndex(int codePoint);
+    }
+
+    @FunctionalInterface
+    private interface PairAdjustment {
+
+        int NOT_APPLICABLE = Integer.MIN_VALUE;
+
+        int getAdjustment(int leftGlyphIndex, int rightGlyphIndex);
+    }
+
+    // pairs are sorted by the packed glyph indices, so a lookup is a binary search without boxing
+    private static final class PairKerning implements PairAdjustment {
+
+        private final int[] glyphPairs;
+        private final short[] kernings;
+
+        private PairKerning(int[] glyphPairs, short[] kernings) {
+            this.glyphPairs = glyphPairs;
+            this.kernings = kernings;
+        }
+
+        @Override
+        public int getAdjustment(int leftGlyphIndex, int rightGlyphIndex) {
+
+            int index = Arrays.binarySearch(glyphPairs, (leftGlyphIndex << 16) | rightGlyphIndex);
+
+            return (index >= 0) ? kernings[index] : NOT_APPLICABLE;
+        }
+    }
+
+    private static final class PairKerningBuilder {
+
+        // packed glyph pair in the upper half, order of addition in the lower half
+        private long[] entries = new long[256];
+        private short[] kernings = new short[256];
+        private int size;
+
+        void add(int leftGlyphIndex, int rightGlyphIndex, short kerning) {
+
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * size);
+                kernings = Arrays.copyOf(kernings, 2 * size);
+            }
+
+            entries[size] = ((long) ((leftGlyphIndex << 16) | rightGlyphIndex) << 32) | size;
+            kernings[size] = kerning;
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        PairKerning build() {
+
+            long[] sortedEntries = Arrays.copyOf(entries, size);
+            Arrays.sort(sortedEntries);
+
+            int[] glyphPairs = new int[size];
+            short[] sortedKernings = new short[size];
+            int count = 0;
+
+            for (long entry : sortedEntries) {
+
+                int glyphPair = (int) (entry >> 32);
+
+                // the first occurrence of a pair wins as in the font lookup order
+                if (count == 0 || glyphPairs[count - 1] != glyphPair) {
+                    glyphPairs[count] = glyphPair;
+                    sortedKernings[count] = kernings[(int) entry];
+                    count++;
+                }
+            }
+
+            return new PairKerning(Arrays.copyOf(glyphPairs, count), Arrays.copyOf(sortedKernings, count));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+class FontFileTextMetrics implements TextMetrics {
+
+    // the same rounding as used by AWT FontMetrics so layouts remain comparable
+    private static final float ROUNDING_UP_VALUE = 0.95f;
+
+    private final FontFile fontFile;
+    private final char[] bmpGlyphIndices;
+    private final char[] bmpAdvanceWidths;
+    private final boolean kerning;
+    private final double size;
+    private final double scale;
+    private final int ascent;
+    private final int descent;
+
+    FontFileTextMetrics(FontFile fontFile, double size) {
+        this.fontFile = fontFile;
+        this.bmpGlyphIndices = fontFile.getBmpGlyphIndices();
+        this.bmpAdvanceWidths = fontFile.getBmpAdvanceWidths();
+        this.kerning = fontFile.hasKerning();
+        this.size = size;
+        this.scale = size / fontFile.getUnitsPerEm();
+        this.ascent = (int) (ROUNDING_UP_VALUE + fontFile.getAscender() * scale);
+        this.descent = (int) (ROUNDING_UP_VALUE - fontFile.getDescender() * scale);
+    }
+
+    @Override
+    public double getSize() {
+        return size;
+    }
+
+    @Override
+    public int getAscent() {
+        return ascent;
+    }
+
+    @Override
+    public int getDescent() {
+        return descent;
+    }
+
+    @Override
+    public int stringWidth(String text) {
+
+        long width = 0;
+        int previousGlyphIndex = -1;
+
+        for (int i = 0; i < text.length(); ) {
+
+            char c = text.charAt(i);
+            int glyphIndex;
+
+            if (Character.isSurrogate(c)) {
+                int codePoint = text.codePointAt(i);
+                glyphIndex = fontFile.getGlyphIndex(codePoint);
+                width += fontFile.getAdvanceWidth(glyphIndex);
+                i += Character.charCount(codePoint);
+
+            } else {
+                glyphIndex = bmpGlyphIndices[c];
+                width += bmpAdvanceWidths[c];
+                i++;
+            }
+
+            if (kerning && previousGlyphIndex >= 0) {
+                width += fontFile.getKerning(previousGlyphIndex, glyphIndex);
+            }
+
+            previousGlyphIndex = glyphIndex;
+        }
+
+        return (int) (0.5 + width * scale);
+    }
+}
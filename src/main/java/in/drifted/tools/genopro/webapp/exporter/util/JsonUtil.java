@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class JsonUtil {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public static void appendString(StringBuilder json, String value) {
+
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        appendUnicodeEscape(json, c);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+
+        json.append('"');
+    }
+
+    /**
+     * Writes the text as a single-quoted JavaScript string literal. Typically used for JSON text passed to JSON.parse,
+     * which is faster to evaluate than the equivalent object literal.
+     */
+    public static void writeScriptStringLiteral(Writer writer, CharSequence text) throws IOException {
+
+        StringBuilder literal = new StringBuilder(text.length() + text.length() / 8 + 2);
+        literal.append('\'');
+
+        for (int i = 0; i < text.length(); i++) {
+
+            char c = text.charAt(i);
+
+            switch (c) {
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\'':
+                    literal.append("\\'");
+                    break;
+                case '<':
+                    // avoids </script> when the data gets inlined
+                    literal.append("\\x3c");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        appendUnicodeEscape(literal, c);
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+
+        literal.append('\'');
+        writer.append(literal);
+    }
+
+    private static void appendUnicodeEscape(StringBuilder builder, char c) {
+        builder.append("\\u")
+                .append(HEX_DIGITS[(c >> 12) & 0xF])
+                .append(HEX_DIGITS[(c >> 8) & 0xF])
+                .append(HEX_DIGITS[(c >> 4) & 0xF])
+                .append(HEX_DIGITS[c & 0xF]);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Merges lines into a few paths, so thousands of short line segments do not become separate DOM nodes. Lines are
+ * batched by their class without the family id. Their data are simply concatenated as every line starts with an
+ * absolute move.
+ * <p>
+ * If families are recorded, every batch containing family lines gets a data-families attribute listing the family id
+ * and the number of subpaths for each run of subpaths from the same family, e.g. "fam1 2 fam5 1", so a single family
+ * can still be selected. Subpaths not belonging to any family are listed as "-".
+ */
+public class LineBatchWriter implements LineWriter {
+
+    private static final String NO_FAMILY = "-";
+
+    private final ToIntBiFunction<String, String> layerFunction;
+    private final boolean familiesRecorded;
+    private final Map<BatchKey, Batch> batchMap = new LinkedHashMap<>();
+
+    private Batch batch = null;
+    private String familyId = null;
+    private int subpathCount = 0;
+
+    /**
+     * @param layerFunction returns the layer for the line class and the style class (possibly null), batches are
+     * written in the ascending order of their layers and then in the order of their first occurrence
+     */
+    public LineBatchWriter(ToIntBiFunction<String, String> layerFunction, boolean familiesRecorded) {
+        this.layerFunction = layerFunction;
+        this.familiesRecorded = familiesRecorded;
+    }
+
+    @Override
+    public void startLine(String className, String modifier, String familyId, String styleClassName) {
+
+        BatchKey batchKey = new BatchKey(className, (familyId != null) ? modifier : "", styleClassName);
+
+        batch = batchMap.get(batchKey);
+
+        if (batch == null) {
+            batch = new Batch(batchKey.getClassName(), layerFunction.applyAsInt(className, styleClassName));
+            batchMap.put(batchKey, batch);
+        }
+
+        this.familyId = familyId;
+        subpathCount = 0;
+    }
+
+    @Override
+    public LineWriter append(String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == 'M') {
+                subpathCount++;
+            }
+        }
+
+        batch.pathData().append(value);
+
+        return this;
+    }
+
+    @Override
+    public LineWriter append(char value) {
+
+        if (value == 'M') {
+            subpathCount++;
+        }
+
+        batch.pathData().append(value);
+
+        return this;
+    }
+
+    @Override
+    public LineWriter append(int value) {
+        batch.pathData().append(value);
+        return this;
+    }
+
+    @Override
+    public LineWriter append(double value) {
+        ByteSvgWriter.appendNumber(batch.pathData(), value);
+        return this;
+    }
+
+    @Override
+    public void endLine() {
+
+        if (familiesRecorded) {
+            batch.addFamilyRun((familyId != null) ? familyId : NO_FAMILY, subpathCount);
+        }
+
+        batch = null;
+    }
+
+    public void writeBatches(SvgWriter writer) throws IOException {
+
+        List<Batch> batchList = new ArrayList<>(batchMap.values());
+        batchList.sort(Comparator.comparingInt(Batch::layer));
+
+        for (Batch batch : batchList) {
+
+            writer.writeStartElement("path");
+            writer.writeAttribute("d", batch.pathData().toString());
+            writer.writeAttribute("class", batch.className());
+
+            if (familiesRecorded && batch.hasFamilyMembers()) {
+                batch.closeFamilyRun();
+                writer.writeAttribute("data-families", batch.families().toString());
+            }
+
+            writer.writeEndElement();
+        }
+
+        batchMap.clear();
+    }
+
+    private record BatchKey(String className, String modifier, String styleClassName) {
+
+        private String getClassName() {
+
+            StringBuilder batchClassName = new StringBuilder(className);
+
+            if (!modifier.isBlank()) {
+                batchClassName.append(' ').append(modifier.trim());
+            }
+
+            if (styleClassName != null) {
+                batchClassName.append(' ').append(styleClassName);
+            }
+
+            return batchClassName.toString();
+        }
+    }
+
+    private static final class Batch {
+
+        private final String className;
+        private final int layer;
+        private final StringBuilder pathData = new StringBuilder();
+        private final StringBuilder families = new StringBuilder();
+        private String runFamilyId = null;
+        private int runSubpathCount = 0;
+        private boolean familyMembers = false;
+
+        private Batch(String className, int layer) {
+            this.className = className;
+            this.layer = layer;
+        }
+
+        private String className() {
+            return className;
+        }
+
+        private int layer() {
+            return layer;
+        }
+
+        private StringBuilder pathData() {
+            return pathData;
+        }
+
+        private StringBuilder families() {
+            return families;
+        }
+
+        private boolean hasFamilyMembers() {
+            return familyMembers;
+        }
+
+        private void addFamilyRun(String familyId, int subpathCount) {
+
+            if (!familyId.equals(NO_FAMILY)) {
+                familyMembers = true;
+            }
+
+            if (familyId.equals(runFamilyId)) {
+                runSubpathCount += subpathCount;
+                return;
+            }
+
+            closeFamilyRun();
+
+            runFamilyId = familyId;
+            runSubpathCount = subpathCount;
+        }
+
+        private void closeFamilyRun() {
+
+            if (runFamilyId != null) {
+                if (families.length() > 0) {
+                    families.append(' ');
+                }
+                families.append(runFamilyId).append(' ').append(runSubpathCount);
+                runFamilyId = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import in.drifted.tools.genopro.webapp.exporter.event.ExportEvents;
+import in.drifted.tools.genopro.webapp.exporter.event.LineWrapEvent;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU memo of wrapped lines. Names and dates repeat across genomaps so most of the lookups are hits. Intended
+ * for a single text metrics factory as the font size is the only metrics related part of the key.
+ */
+public class LineWrapCache {
+
+    private final Map<Key, List<String>> cache;
+
+    public LineWrapCache(int maxSize) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public List<String> getWrappedLineList(String text, int maxWidth, TextMetrics textMetrics) {
+
+        Key key = new Key(text, maxWidth, textMetrics.getSize());
+
+        List<String> wrappedLineList;
+
+        synchronized (cache) {
+            wrappedLineList = cache.get(key);
+        }
+
+        if (wrappedLineList == null) {
+
+            LineWrapEvent event = ExportEvents.isEnabled() ? LineWrapEvent.start() : null;
+
+            // computed outside the lock, concurrent duplicates are harmless
+            wrappedLineList = List.copyOf(LineWrapUtil.getWrappedLineList(text, maxWidth, textMetrics));
+
+            if (event != null) {
+                event.finish(text, maxWidth, textMetrics.getSize(), wrappedLineList.size());
+            }
+
+            synchronized (cache) {
+                cache.put(key, wrappedLineList);
+            }
+        }
+
+        return wrappedLineList;
+    }
+
+    private record Key(String text, int maxWidth, double size) {
+
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LineWrapUtil {
+
+    public static List<String> getWrappedLineList(String text, int maxWidth, TextMetrics textMetrics) {
+
+        List<String> lineList = new ArrayList<>();
+
+        StringBuilder line = new StringBuilder();
+
+        for (String word : text.split(" ")) {
+
+            if (line.length() > 0) {
+
+                int lineLength = line.length();
+                line.append(' ');
+                line.append(word);
+
+                if (textMetrics.stringWidth(line.toString()) > maxWidth) {
+                    lineList.add(line.substring(0, lineLength));
+                    line.setLength(0);
+                    line.append(word);
+                }
+
+            } else {
+                // too long words are not split
+                line.append(word);
+            }
+        }
+
+        lineList.add(line.toString());
+
+        return lineList;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+
+/**
+ * Receives family lines and pedigree links as path data composed between {@link #startLine} and {@link #endLine()}.
+ * The class of a line consists of the line class, the modifier and the family id, optionally followed by the style
+ * class, e.g. "family-line highlighted fam1 c4".
+ */
+public interface LineWriter {
+
+    /**
+     * @param modifier separates the line class and the family id, e.g. " highlighted "
+     * @param familyId null if the line doesn't belong to a particular family (the modifier is then ignored)
+     * @param styleClassName null if the line has no style class
+     */
+    void startLine(String className, String modifier, String familyId, String styleClassName) throws IOException;
+
+    LineWriter append(String value) throws IOException;
+
+    LineWriter append(char value) throws IOException;
+
+    LineWriter append(int value) throws IOException;
+
+    LineWriter append(double value) throws IOException;
+
+    void endLine() throws IOException;
+}
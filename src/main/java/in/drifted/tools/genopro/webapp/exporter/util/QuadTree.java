@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point quadtree partitioning items by their anchor points. A node is split into quadrants once it holds more than
+ * the given capacity, unless the maximum depth is reached, so crowded areas end up in smaller leaves.
+ */
+public class QuadTree<T> {
+
+    private final Rectangle2D bounds;
+    private final int capacity;
+    private final int remainingDepth;
+
+    private List<Entry<T>> entryList = new ArrayList<>();
+    private List<QuadTree<T>> childList = null;
+
+    public QuadTree(Rectangle2D bounds, int capacity, int maxDepth) {
+        this.bounds = bounds;
+        this.capacity = Math.max(capacity, 1);
+        this.remainingDepth = maxDepth;
+    }
+
+    public void insert(double x, double y, T item) {
+
+        if (childList != null) {
+            getChild(x, y).insert(x, y, item);
+            return;
+        }
+
+        entryList.add(new Entry<>(x, y, item));
+
+        if (entryList.size() > capacity && remainingDepth > 0) {
+            split();
+        }
+    }
+
+    /**
+     * Items of the non-empty leaves, in the Z-order of the leaves and the insertion order within each leaf.
+     */
+    public List<List<T>> getLeafItemLists() {
+
+        List<List<T>> leafItemLists = new ArrayList<>();
+        collectLeafItemLists(leafItemLists);
+
+        return leafItemLists;
+    }
+
+    private void collectLeafItemLists(List<List<T>> leafItemLists) {
+
+        if (childList != null) {
+            for (QuadTree<T> child : childList) {
+                child.collectLeafItemLists(leafItemLists);
+            }
+
+        } else if (!entryList.isEmpty()) {
+
+            List<T> itemList = new ArrayList<>(entryList.size());
+
+            for (Entry<T> entry : entryList) {
+                itemList.add(entry.item());
+            }
+
+            leafItemLists.add(itemList);
+        }
+    }
+
+    private void split() {
+
+        double halfWidth = bounds.getWidth() / 2;
+        double halfHeight = bounds.getHeight() / 2;
+
+        childList = new ArrayList<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            Rectangle2D childBounds = new Rectangle2D.Double(bounds.getX() + (i % 2) * halfWidth,
+                    bounds.getY() + (i / 2) * halfHeight, halfWidth, halfHeight);
+            childList.add(new QuadTree<>(childBounds, capacity, remainingDepth - 1));
+        }
+
+        List<Entry<T>> splitEntryList = entryList;
+        entryList = null;
+
+        for (Entry<T> entry : splitEntryList) {
+            getChild(entry.x(), entry.y()).insert(entry.x(), entry.y(), entry.item());
+        }
+    }
+
+    // points outside of the bounds are assigned to the nearest quadrant
+    private QuadTree<T> getChild(double x, double y) {
+        int column = (x < bounds.getCenterX()) ? 0 : 1;
+        int row = (y < bounds.getCenterY()) ? 0 : 1;
+        return childList.get(2 * row + column);
+    }
+
+    private record Entry<T>(double x, double y, T item) {
+
+    }
+}
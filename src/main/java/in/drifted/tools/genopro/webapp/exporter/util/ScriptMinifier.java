@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.util.Set;
+
+/**
+ * Conservative JavaScript minifier. Removes comments (except the leading license comment) and whitespace which is not
+ * needed to separate tokens. String, template and regular expression literals are copied unchanged. Statements are
+ * expected to be terminated by semicolons as line breaks are not preserved.
+ */
+public class ScriptMinifier {
+
+    private static final String REGEX_PRECEDING_CHARS = "(,=:[!&|?{};+-*%<>~^";
+
+    private static final Set<String> REGEX_PRECEDING_KEYWORD_SET = Set.of(
+            "case", "delete", "do", "else", "in", "instanceof", "new", "of", "return", "throw", "typeof", "void");
+
+    public static String minify(String script) {
+
+        StringBuilder output = new StringBuilder(script.length());
+
+        int length = script.length();
+        int i = 0;
+        boolean pendingWhitespace = false;
+
+        while (i < length) {
+
+            char c = script.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                pendingWhitespace = true;
+                i++;
+
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+
+                int end = script.indexOf("*/", i + 2);
+                end = (end < 0) ? length : end + 2;
+
+                if (output.length() == 0 && script.substring(0, i).isBlank()) {
+                    output.append(script, i, end).append('\n');
+                } else {
+                    pendingWhitespace = true;
+                }
+
+                i = end;
+
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '/') {
+
+                while (i < length && script.charAt(i) != '\n') {
+                    i++;
+                }
+
+                pendingWhitespace = true;
+
+            } else {
+
+                if (pendingWhitespace && output.length() > 0) {
+                    char previous = output.charAt(output.length() - 1);
+                    if (isSpaceRequired(previous, c)) {
+                        output.append(' ');
+                    }
+                }
+
+                pendingWhitespace = false;
+
+                if (c == '"' || c == '\'' || c == '`') {
+                    i = copyLiteral(script, i, c, output);
+
+                } else if (c == '/' && isRegexAllowed(output)) {
+                    i = copyRegex(script, i, output);
+
+                } else {
+                    output.append(c);
+                    i++;
+                }
+            }
+        }
+
+        return output.toString();
+    }
+
+    private static boolean isSpaceRequired(char previous, char next) {
+        return (isIdentifierPart(previous) && isIdentifierPart(next))
+                || ((previous == '+' || previous == '-') && previous == next);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '\\' || c > 0x7F;
+    }
+
+    private static boolean isRegexAllowed(StringBuilder output) {
+
+        int end = output.length();
+
+        if (end == 0) {
+            return true;
+        }
+
+        char previous = output.charAt(end - 1);
+
+        if (REGEX_PRECEDING_CHARS.indexOf(previous) >= 0) {
+            return true;
+        }
+
+        if (Character.isLetter(previous)) {
+
+            int start = end;
+            while (start > 0 && isIdentifierPart(output.charAt(start - 1))) {
+                start--;
+            }
+
+            return REGEX_PRECEDING_KEYWORD_SET.contains(output.substring(start, end));
+        }
+
+        return false;
+    }
+
+    private static int copyLiteral(String script, int start, char quote, StringBuilder output) {
+
+        int i = start + 1;
+
+        while (i < script.length()) {
+
+            char c = script.charAt(i);
+
+            if (c == '\\') {
+                i += 2;
+
+            } else if (c == quote) {
+                i++;
+                break;
+
+            } else {
+                i++;
+            }
+        }
+
+        i = Math.min(i, script.length());
+        output.append(script, start, i);
+
+        return i;
+    }
+
+    private static int copyRegex(String script, int start, StringBuilder output) {
+
+        int i = start + 1;
+        boolean inCharacterClass = false;
+
+        while (i < script.length()) {
+
+            char c = script.charAt(i);
+
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+
+            i++;
+
+            if (c == '[') {
+                inCharacterClass = true;
+
+            } else if (c == ']') {
+                inCharacterClass = false;
+
+            } else if (c == '/' && !inCharacterClass) {
+                break;
+
+            } else if (c == '\n') {
+                break;
+            }
+        }
+
+        i = Math.min(i, script.length());
+        output.append(script, start, i);
+
+        return i;
+    }
+}
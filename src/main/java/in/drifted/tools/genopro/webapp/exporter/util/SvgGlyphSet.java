@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Shapes repeated for every individual, defined once per SVG document and placed by use elements. The definitions are
+ * centered at the origin and have no class, so they inherit the style from the use element referencing them.
+ */
+public class SvgGlyphSet {
+
+    public enum Glyph {
+
+        // highlighted symbols are paths, so the dash pattern starts at the first point
+        HIGHLIGHTED_SQUARE("hs"),
+        HIGHLIGHTED_CIRCLE("hc"),
+        LARGE_CROSS("lx"),
+        SMALL_CROSS("sx");
+
+        private final String idSuffix;
+
+        Glyph(String idSuffix) {
+            this.idSuffix = idSuffix;
+        }
+    }
+
+    private final Set<Glyph> documentGlyphSet = EnumSet.noneOf(Glyph.class);
+    private String idPrefix = "";
+
+    /**
+     * Clears the glyphs collected for the previous document.
+     *
+     * @param idPrefix prefix making the glyph ids unique within the page
+     */
+    public void startDocument(String idPrefix) {
+        this.idPrefix = idPrefix;
+        documentGlyphSet.clear();
+    }
+
+    /**
+     * Writes the start of the use element placing the glyph at the given position, the caller adds the class and ends
+     * the element.
+     */
+    public void writeStartUseElement(SvgWriter writer, Glyph glyph, int x, int y) throws IOException {
+
+        documentGlyphSet.add(glyph);
+
+        writer.writeStartElement("use");
+        writer.writeStartAttribute("href");
+        writer.append('#').append(idPrefix).append(glyph.idSuffix);
+        writer.writeEndAttribute();
+        writer.writeAttribute("x", x);
+        writer.writeAttribute("y", y);
+    }
+
+    public void writeDefsElement(SvgWriter writer) throws IOException {
+
+        if (documentGlyphSet.isEmpty()) {
+            return;
+        }
+
+        writer.writeStartElement("defs");
+
+        for (Glyph glyph : documentGlyphSet) {
+
+            switch (glyph) {
+                case HIGHLIGHTED_SQUARE:
+                    writer.writeStartElement("path");
+                    writeIdAttribute(writer, glyph);
+                    writer.writeAttribute("d", "M-9 -9h18v18h-18z");
+                    break;
+                case HIGHLIGHTED_CIRCLE:
+                    writer.writeStartElement("path");
+                    writeIdAttribute(writer, glyph);
+                    writer.writeAttribute("d", "M-9 0a9 9 0 1 0 18 0a9 9 0 1 0 -18 0");
+                    break;
+                case LARGE_CROSS:
+                    writer.writeStartElement("path");
+                    writeIdAttribute(writer, glyph);
+                    writer.writeAttribute("d", "M-9 -9L9 9M-9 9L9 -9");
+                    break;
+                case SMALL_CROSS:
+                    writer.writeStartElement("path");
+                    writeIdAttribute(writer, glyph);
+                    writer.writeAttribute("d", "M-6.4 -6.4L6.4 6.4M-6.4 6.4L6.4 -6.4");
+                    break;
+            }
+
+            writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+    }
+
+    private void writeIdAttribute(SvgWriter writer, Glyph glyph) throws IOException {
+        writer.writeStartAttribute("id");
+        writer.append(idPrefix).append(glyph.idSuffix);
+        writer.writeEndAttribute();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+
+/**
+ * Writes every line as a separate path element.
+ */
+public class SvgLineWriter implements LineWriter {
+
+    private final SvgWriter writer;
+
+    private String className;
+    private String modifier;
+    private String familyId;
+    private String styleClassName;
+
+    public SvgLineWriter(SvgWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void startLine(String className, String modifier, String familyId, String styleClassName)
+            throws IOException {
+
+        this.className = className;
+        this.modifier = modifier;
+        this.familyId = familyId;
+        this.styleClassName = styleClassName;
+
+        writer.writeStartElement("path");
+        writer.writeStartAttribute("d");
+    }
+
+    @Override
+    public LineWriter append(String value) throws IOException {
+        writer.append(value);
+        return this;
+    }
+
+    @Override
+    public LineWriter append(char value) throws IOException {
+        writer.append(value);
+        return this;
+    }
+
+    @Override
+    public LineWriter append(int value) throws IOException {
+        writer.append(value);
+        return this;
+    }
+
+    @Override
+    public LineWriter append(double value) throws IOException {
+        writer.append(value);
+        return this;
+    }
+
+    @Override
+    public void endLine() throws IOException {
+
+        writer.writeEndAttribute();
+
+        writer.writeStartAttribute("class");
+        writer.append(className);
+
+        if (familyId != null) {
+            writer.append(modifier).append(familyId);
+        }
+
+        if (styleClassName != null) {
+            writer.append(' ').append(styleClassName);
+        }
+
+        writer.writeEndAttribute();
+        writer.writeEndElement();
+    }
+}
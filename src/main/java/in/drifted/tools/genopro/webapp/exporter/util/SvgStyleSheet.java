@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces repeated style attributes with short generated class names. Class names are assigned once per genomap, so
+ * they stay the same across all tiles of the genomap, but each SVG document lists just the rules it uses. Rules are
+ * scoped by the genomap id as several genomaps can be embedded in a single page. Identical clip rectangles are shared
+ * within the SVG document.
+ */
+public class SvgStyleSheet {
+
+    private final Map<String, String> classNameMap = new HashMap<>();
+    private final Map<String, String> documentRuleMap = new LinkedHashMap<>();
+    private final Map<ClipRect, String> documentClipPathIdMap = new HashMap<>();
+    private String clipPathIdPrefix = "";
+
+    /**
+     * Clears the rules and clip paths collected for the previous document.
+     *
+     * @param clipPathIdPrefix prefix making the clip path ids unique within the page
+     */
+    public void startDocument(String clipPathIdPrefix) {
+        this.clipPathIdPrefix = clipPathIdPrefix;
+        documentRuleMap.clear();
+        documentClipPathIdMap.clear();
+    }
+
+    public String getClassName(String declarations) {
+
+        String className = classNameMap.computeIfAbsent(declarations, key -> "s" + classNameMap.size());
+        documentRuleMap.putIfAbsent(className, declarations);
+
+        return className;
+    }
+
+    /**
+     * @return the id of the clip path with the given rectangle or null if there is none in the document yet
+     */
+    public String findClipPathId(int x, int y, int width, int height) {
+        return documentClipPathIdMap.get(new ClipRect(x, y, width, height));
+    }
+
+    public String addClipPathId(int x, int y, int width, int height) {
+
+        String clipPathId = clipPathIdPrefix + documentClipPathIdMap.size();
+        documentClipPathIdMap.put(new ClipRect(x, y, width, height), clipPathId);
+
+        return clipPathId;
+    }
+
+    public void writeStyleElement(SvgWriter writer, String genoMapId) throws IOException {
+
+        if (documentRuleMap.isEmpty()) {
+            return;
+        }
+
+        String scope = "#" + escapeIdentifier(genoMapId) + " .";
+
+        writer.writeStartElement("style");
+
+        for (Map.Entry<String, String> entry : documentRuleMap.entrySet()) {
+            writer.writeCharacters(scope + entry.getKey() + "{" + entry.getValue() + "}");
+        }
+
+        writer.writeEndElement();
+    }
+
+    /**
+     * Formats the number the same way as it is written into attributes, i.e. with at most two decimal places.
+     */
+    public static String formatNumber(double value) {
+
+        StringBuilder number = new StringBuilder();
+        ByteSvgWriter.appendNumber(number, value);
+
+        return number.toString();
+    }
+
+    private static String escapeIdentifier(String identifier) {
+
+        StringBuilder escaped = new StringBuilder(identifier.length());
+
+        for (int i = 0; i < identifier.length(); i++) {
+
+            char c = identifier.charAt(i);
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '-' || c > 0x7F
+                    || (c >= '0' && c <= '9' && i > 0)) {
+                escaped.append(c);
+            } else {
+                escaped.append('\\').append(Integer.toHexString(c)).append(' ');
+            }
+        }
+
+        return escaped.toString();
+    }
+
+    private record ClipRect(int x, int y, int width, int height) {
+
+    }
+}
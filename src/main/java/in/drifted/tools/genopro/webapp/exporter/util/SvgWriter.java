@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+
+/**
+ * Minimal streaming writer covering the subset of XML needed for genomap SVGs. Attribute values can be either written
+ * at once or composed from several parts (e.g. path data) between {@link #writeStartAttribute(String)} and
+ * {@link #writeEndAttribute()} without building intermediate strings.
+ */
+public interface SvgWriter {
+
+    void writeStartDocument() throws IOException;
+
+    void writeStartElement(String name) throws IOException;
+
+    void writeAttribute(String name, String value) throws IOException;
+
+    void writeAttribute(String name, int value) throws IOException;
+
+    void writeAttribute(String name, double value) throws IOException;
+
+    void writeStartAttribute(String name) throws IOException;
+
+    SvgWriter append(String value) throws IOException;
+
+    SvgWriter append(char value) throws IOException;
+
+    SvgWriter append(int value) throws IOException;
+
+    SvgWriter append(double value) throws IOException;
+
+    void writeEndAttribute() throws IOException;
+
+    void writeCharacters(String text) throws IOException;
+
+    void writeEndElement() throws IOException;
+
+    void writeEndDocument() throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class TeeOutputStream extends OutputStream {
+
+    private final OutputStream[] outputStreams;
+
+    public TeeOutputStream(OutputStream... outputStreams) {
+        this.outputStreams = outputStreams;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        for (OutputStream outputStream : outputStreams) {
+            outputStream.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (OutputStream outputStream : outputStreams) {
+            outputStream.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (OutputStream outputStream : outputStreams) {
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        IOException exception = null;
+
+        // all streams are closed even if some of them fail
+        for (OutputStream outputStream : outputStreams) {
+            try {
+                outputStream.close();
+
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Template parsed once into literal and ${placeholder} segments. Rendering writes the segments directly to the target
+ * writer. Unknown placeholders are written unchanged.
+ */
+public class Template {
+
+    private final String[] literals;
+    private final String[] placeholderNames;
+
+    private Template(List<String> literalList, List<String> placeholderNameList) {
+        this.literals = literalList.toArray(String[]::new);
+        this.placeholderNames = placeholderNameList.toArray(String[]::new);
+    }
+
+    /**
+     * @param text the template text
+     * @param unquotedPlaceholderSet names of placeholders which are quoted in the template just to keep it a valid
+     * script, the quotes are dropped so the value is inserted as is, e.g. "${dynamic}" becomes true
+     */
+    public static Template compile(String text, Set<String> unquotedPlaceholderSet) {
+
+        List<String> literalList = new ArrayList<>();
+        List<String> placeholderNameList = new ArrayList<>();
+
+        int literalStart = 0;
+        int index = text.indexOf("${");
+
+        while (index >= 0) {
+
+            int end = text.indexOf('}', index + 2);
+
+            if (end < 0) {
+                break;
+            }
+
+            String name = text.substring(index + 2, end);
+
+            if (isPlaceholderName(name)) {
+
+                int literalEnd = index;
+                int next = end + 1;
+
+                if (unquotedPlaceholderSet.contains(name) && index > literalStart && text.charAt(index - 1) == '"'
+                        && next < text.length() && text.charAt(next) == '"') {
+                    literalEnd--;
+                    next++;
+                }
+
+                literalList.add(text.substring(literalStart, literalEnd));
+                placeholderNameList.add(name);
+                literalStart = next;
+                index = text.indexOf("${", next);
+
+            } else {
+                index = text.indexOf("${", index + 2);
+            }
+        }
+
+        literalList.add(text.substring(literalStart));
+
+        return new Template(literalList, placeholderNameList);
+    }
+
+    public static Template compile(String text) {
+        return compile(text, Set.of());
+    }
+
+    public void render(Writer writer, PlaceholderHandler placeholderHandler) throws IOException {
+
+        for (int i = 0; i < placeholderNames.length; i++) {
+            writer.write(literals[i]);
+            placeholderHandler.write(placeholderNames[i], writer);
+        }
+
+        writer.write(literals[literals.length - 1]);
+    }
+
+    public void render(Writer writer, Map<String, String> valueMap) throws IOException {
+        render(writer, (name, placeholderWriter) -> {
+            String value = valueMap.get(name);
+            placeholderWriter.write((value != null) ? value : "${" + name + "}");
+        });
+    }
+
+    public String render(Map<String, String> valueMap) {
+
+        StringWriter writer = new StringWriter();
+
+        try {
+            render(writer, valueMap);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return writer.toString();
+    }
+
+    private static boolean isPlaceholderName(String name) {
+
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface PlaceholderHandler {
+
+        void write(String placeholderName, Writer writer) throws IOException;
+    }
+}
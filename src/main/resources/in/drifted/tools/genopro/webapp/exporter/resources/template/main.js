@@ -1,7 +1,12 @@
 /* Copyright (c) 2018 Jan Tošovský */
 const dynamic = "${dynamic}";
+const overviewZoom = "${overviewZoom}";
 let svgPanZoomInstance;
 let genoMapSvg = null;
+let genoMapTiles = null;
+let viewportUpdateScheduled = false;
+let genoMapLevels = null;
+let levelSwitching = false;
 let genoMapId = getGenoMapId();
 let genoMapSelectedIndividualId = null;
 let keywords = [];
@@ -10,9 +15,14 @@ let searchResultsSelectedIndividualId = null;
 let pinnedEntry = null;
 let dragging = false;
 let rowsProcessed = 0;
+let searchResults = null;
 let zoom;
 let pan;
 let theme = "light";
+let iMap = null;
+let iIds = null;
+const individualShardMap = new Map();
+const genoMapIndexMap = new Map();
 
 window.addEventListener("hashchange", processParams);
 window.addEventListener("beforeprint", setRealSize);
@@ -104,14 +114,17 @@ function switchGenoMap(callback) {
             genoMapSvg = document.getElementById(genoMapId);
             genoMapSvg.style.display = "block";
 
-            initSvgListeners();
+            initSvgListeners(genoMapSvg);
             initSvgPanZoom();
-
-            callback();
+            initSvgHitTesting();
+            initGenoMapTiles(callback);
 
         } else {
 
-            fetch(genoMapId + ".svg")
+            genoMapLevels = null;
+            levelSwitching = false;
+
+            fetch(genoMapId + ((overviewZoom > 0) ? "-overview.svg" : ".svg"))
                 .then(response => response.text())
                 .then(data => {
                     const parser = new DOMParser();
@@ -130,10 +143,10 @@ function switchGenoMap(callback) {
 
                     genoMapSelectedIndividualId = null;
 
-                    initSvgListeners();
+                    initSvgListeners(genoMapSvg);
                     initSvgPanZoom();
-
-                    callback();
+                    initSvgHitTesting();
+                    initGenoMapTiles(callback);
                 })
                 .catch(console.error);
         }
@@ -157,25 +170,25 @@ function switchGenoMap(callback) {
         genoMapSvg = document.getElementById(genoMapId);
         genoMapSvg.style.display = "block";
 
-        initSvgListeners();
+        initSvgListeners(genoMapSvg);
         initSvgPanZoom();
-
-        callback();
+        initSvgHitTesting();
+        initGenoMapTiles(callback);
     }
 
     location.hash = "#/sheet/" + genoMapId;
 }
 
-function initSvgListeners() {
+function initSvgListeners(root) {
     if ("${pedigreeLinksSelectionMode}" === "MANUAL") {
-        const familyLines = document.getElementsByClassName("family-line");
+        const familyLines = root.getElementsByClassName("family-line");
         for (let i = 0; i < familyLines.length; i++) {
             familyLines[i].addEventListener("touchend", selectPath);
             familyLines[i].addEventListener("mousedown", selectPath);
             familyLines[i].style.cursor = "default";
         }
 
-        const pedigreeLinks = document.getElementsByClassName("pedigree-link");
+        const pedigreeLinks = root.getElementsByClassName("pedigree-link");
         for (let i = 0; i < pedigreeLinks.length; i++) {
             pedigreeLinks[i].addEventListener("touchend", selectPath);
             pedigreeLinks[i].addEventListener("mousedown", selectPath);
@@ -183,19 +196,233 @@ function initSvgListeners() {
         }
     }
 
-    const individuals = document.getElementsByClassName("individual-active-area");
-    for (let i = 0; i < individuals.length; i++) {
-        individuals[i].addEventListener("touchend", select);
-        individuals[i].addEventListener("mousedown", select);
-    }
-
-    const hyperlinks = document.getElementsByClassName("individual-label-hyperlink");
+    const hyperlinks = root.getElementsByClassName("individual-label-hyperlink");
     for (let i = 0; i < hyperlinks.length; i++) {
         hyperlinks[i].addEventListener("touchend", scrollIntoView);
         hyperlinks[i].addEventListener("mousedown", scrollIntoView);
     }
 }
 
+/* individuals are hit-tested using the genomap index, the SVG contains no active areas */
+function initSvgHitTesting() {
+    loadGenoMapIndex(genoMapId, function() {});
+    genoMapSvg.addEventListener("touchend", selectAt);
+    genoMapSvg.addEventListener("mousedown", selectAt);
+}
+
+/* tiled genomaps contain just empty layers, tiles overlapping the viewport are loaded into them on demand */
+function initGenoMapTiles(callback) {
+
+    genoMapTiles = null;
+
+    const manifestPath = genoMapSvg.getAttribute("data-tiles");
+
+    if (manifestPath === null) {
+        callback();
+        scheduleViewportUpdate();
+        return;
+    }
+
+    const svg = genoMapSvg;
+
+    fetch(manifestPath)
+        .then(response => response.json())
+        .then(manifest => {
+            if (svg === genoMapSvg) {
+                genoMapTiles = {svg: svg, manifest: manifest, states: new Array(manifest.t.length)};
+                loadVisibleTiles();
+                callback();
+                scheduleViewportUpdate();
+            }
+        })
+        .catch(console.error);
+}
+
+function scheduleViewportUpdate() {
+
+    if ((genoMapTiles !== null || overviewZoom > 0) && !viewportUpdateScheduled) {
+        viewportUpdateScheduled = true;
+        requestAnimationFrame(function() {
+            viewportUpdateScheduled = false;
+            updateLevelOfDetail();
+            loadVisibleTiles();
+        });
+    }
+}
+
+/* the overview without any texts is shown below the overviewZoom scale, the full detail above it */
+function updateLevelOfDetail() {
+
+    if (overviewZoom <= 0 || !svgPanZoomInstance || levelSwitching) {
+        return;
+    }
+
+    const overview = genoMapSvg.getAttribute("data-lod") === "overview";
+    const realZoom = svgPanZoomInstance.getSizes().realZoom;
+
+    if (overview && realZoom >= overviewZoom) {
+        showLevelOfDetail("detail", genoMapId + ".svg");
+
+    } else if (!overview && realZoom < overviewZoom) {
+        showLevelOfDetail("overview", genoMapId + "-overview.svg");
+    }
+}
+
+function showLevelOfDetail(level, path) {
+
+    if (genoMapLevels === null) {
+        genoMapLevels = {};
+    }
+
+    genoMapLevels[(genoMapSvg.getAttribute("data-lod") === "overview") ? "overview" : "detail"] = genoMapSvg;
+
+    if (genoMapLevels[level]) {
+        replaceGenoMapSvg(genoMapLevels[level]);
+        return;
+    }
+
+    const levels = genoMapLevels;
+    levelSwitching = true;
+
+    fetch(path)
+        .then(response => response.text())
+        .then(data => {
+            const parser = new DOMParser();
+            const xml = parser.parseFromString(data, "application/xml");
+            const svg = document.importNode(xml.documentElement, true);
+
+            levels[level] = svg;
+
+            if (levels === genoMapLevels) {
+                levelSwitching = false;
+                initSvgListeners(svg);
+                replaceGenoMapSvg(svg);
+            }
+        })
+        .catch(function(error) {
+            levelSwitching = false;
+            console.error(error);
+        });
+}
+
+/* keeps the scale, position and selection */
+function replaceGenoMapSvg(svg) {
+
+    const realZoom = svgPanZoomInstance.getSizes().realZoom;
+    const pan = svgPanZoomInstance.getPan();
+
+    svgPanZoomInstance.destroy();
+
+    genoMapSvg.parentNode.replaceChild(svg, genoMapSvg);
+    genoMapSvg = svg;
+    genoMapSvg.style.display = "block";
+
+    initSvgPanZoom();
+    initSvgHitTesting();
+    svgPanZoomInstance.zoomBy(realZoom / svgPanZoomInstance.getSizes().realZoom);
+    svgPanZoomInstance.pan(pan);
+
+    initGenoMapTiles(function() {
+
+        const id = genoMapSelectedIndividualId;
+
+        if (id !== null) {
+            loadIndividualTile(id, function() {
+                if (genoMapSvg.getElementById(id) !== null) {
+                    selectById(id);
+                }
+            });
+        }
+    });
+}
+
+function loadVisibleTiles() {
+
+    if (genoMapTiles === null || !svgPanZoomInstance) {
+        return;
+    }
+
+    const sizes = svgPanZoomInstance.getSizes();
+    const pan = svgPanZoomInstance.getPan();
+
+    /* the visible area in the genomap coordinates, extended by half of its size on each side */
+    const width = sizes.width / sizes.realZoom;
+    const height = sizes.height / sizes.realZoom;
+    const left = -pan.x / sizes.realZoom - width / 2;
+    const top = -pan.y / sizes.realZoom - height / 2;
+
+    const tiles = genoMapTiles.manifest.t;
+
+    for (let i = 0; i < tiles.length; i++) {
+        const bounds = tiles[i].b;
+        if (bounds[0] < left + 2 * width && bounds[0] + bounds[2] > left
+                && bounds[1] < top + 2 * height && bounds[1] + bounds[3] > top) {
+            loadTile(i, null);
+        }
+    }
+}
+
+function loadIndividualTile(id, callback) {
+
+    if (genoMapTiles === null || !Object.prototype.hasOwnProperty.call(genoMapTiles.manifest.i, id)) {
+        callback();
+        return;
+    }
+
+    loadTile(genoMapTiles.manifest.i[id], callback);
+}
+
+function loadTile(index, callback) {
+
+    const tiles = genoMapTiles;
+    const state = tiles.states[index];
+
+    if (state === true) {
+        if (callback !== null) {
+            callback();
+        }
+        return;
+    }
+
+    if (Array.isArray(state)) {
+        if (callback !== null) {
+            state.push(callback);
+        }
+        return;
+    }
+
+    tiles.states[index] = (callback !== null) ? [callback] : [];
+
+    fetch(tiles.manifest.t[index].f)
+        .then(response => response.text())
+        .then(data => {
+            const parser = new DOMParser();
+            const xml = parser.parseFromString(data, "application/xml");
+            const tile = document.importNode(xml.documentElement, true);
+
+            initSvgListeners(tile);
+
+            const layers = tile.querySelectorAll("g[data-layer]");
+
+            for (let i = 0; i < layers.length; i++) {
+                const target = tiles.svg.querySelector("g[data-layer=\"" + layers[i].getAttribute("data-layer") + "\"]");
+                while (layers[i].firstChild) {
+                    target.appendChild(layers[i].firstChild);
+                }
+            }
+
+            const callbacks = tiles.states[index];
+            tiles.states[index] = true;
+
+            if (tiles === genoMapTiles) {
+                callbacks.forEach(function(tileCallback) {
+                    tileCallback();
+                });
+            }
+        })
+        .catch(console.error);
+}
+
 function initSvgPanZoom() {
 
     svgPanZoomInstance = svgPanZoom(genoMapSvg, {
@@ -203,6 +430,8 @@ function initSvgPanZoom() {
         minZoom: 0.01,
         maxZoom: 100,
         dblClickZoomEnabled: false,
+        onZoom: scheduleViewportUpdate,
+        onPan: scheduleViewportUpdate,
         customEventsHandler: {
             haltEventListeners: [
                 "touchstart",
@@ -269,7 +498,7 @@ function triggerSearch(e) {
     const rawKeywords = document.getElementById("keywords").value.trim();
 
     if (rawKeywords.length > 0) {
-        const newKeywords = rawKeywords.toLowerCase().split(/\s+/);
+        const newKeywords = foldText(rawKeywords).split(/\s+/);
         if (!isSame(keywords, newKeywords)) {
             keywords = newKeywords;
             rowsProcessed = 0;
@@ -293,6 +522,10 @@ function scrollIntoView(e) {
 
 function scrollIntoViewById(id) {
 
+    if (!loadIndividuals()) {
+        return;
+    }
+
     if (iMap.get(id)[0] !== genoMapId) {
 
         genoMapId = iMap.get(id)[0];
@@ -300,9 +533,30 @@ function scrollIntoViewById(id) {
 
         switchGenoMap(function() {
 
+            locateIndividual(id, function() {
+
+                const currentPosition = getCurrentPosition(id);
+                const targetPosition = getTargetPosition();
+                const reverseZoom = 1 / svgPanZoomInstance.getSizes().realZoom;
+
+                svgPanZoomInstance.panBy(
+                        {
+                            x: targetPosition.x - currentPosition.x,
+                            y: targetPosition.y - currentPosition.y
+                        });
+
+                svgPanZoomInstance.zoomAtPointBy(reverseZoom, targetPosition);
+
+                selectById(id);
+            });
+        });
+
+    } else {
+
+        locateIndividual(id, function() {
+
             const currentPosition = getCurrentPosition(id);
             const targetPosition = getTargetPosition();
-            const reverseZoom = 1 / svgPanZoomInstance.getSizes().realZoom;
 
             svgPanZoomInstance.panBy(
                     {
@@ -310,31 +564,31 @@ function scrollIntoViewById(id) {
                         y: targetPosition.y - currentPosition.y
                     });
 
-            svgPanZoomInstance.zoomAtPointBy(reverseZoom, targetPosition);
-
             selectById(id);
         });
+    }
+}
 
-    } else {
-
-        const currentPosition = getCurrentPosition(id);
-        const targetPosition = getTargetPosition();
-
-        svgPanZoomInstance.panBy(
-                {
-                    x: targetPosition.x - currentPosition.x,
-                    y: targetPosition.y - currentPosition.y
-                });
+function selectAt(e) {
 
-        selectById(id);
+    /* hyperlinks are handled by their own listeners */
+    if (e.target.closest(".individual-label-hyperlink") !== null) {
+        return;
     }
-}
 
-function select(e) {
+    const point = (e.changedTouches) ? e.changedTouches[0] : e;
+    const sizes = svgPanZoomInstance.getSizes();
+    const pan = svgPanZoomInstance.getPan();
+    const bounds = genoMapSvg.getBoundingClientRect();
 
-    e.preventDefault();
+    const id = findIndividualAt(
+            (point.clientX - bounds.left - pan.x) / sizes.realZoom,
+            (point.clientY - bounds.top - pan.y) / sizes.realZoom);
 
-    selectById(e.target.parentElement.id);
+    if (id !== null) {
+        e.preventDefault();
+        selectById(id);
+    }
 }
 
 function selectPath(e) {
@@ -343,7 +597,17 @@ function selectPath(e) {
     /* remove previous link highlights */
     const highlightedLinks = document.getElementsByClassName("link-highlight");
     while (highlightedLinks.length > 0) {
-       highlightedLinks[0].classList.remove("link-highlight");
+        if (highlightedLinks[0].hasAttribute("data-overlay")) {
+            highlightedLinks[0].parentNode.removeChild(highlightedLinks[0]);
+        } else {
+            highlightedLinks[0].classList.remove("link-highlight");
+        }
+    }
+
+    /* merged paths of many families */
+    if (e.target.hasAttribute("data-families")) {
+        selectBatchedPath(e);
+        return;
     }
 
     /* find family ID of the selected element */
@@ -364,6 +628,74 @@ function selectPath(e) {
 
 }
 
+/* the family is found by testing its segments against the point, its segments in all merged paths are then
+   highlighted by overlays */
+function selectBatchedPath(e) {
+
+    const point = (e.changedTouches) ? e.changedTouches[0] : e;
+    const sizes = svgPanZoomInstance.getSizes();
+    const pan = svgPanZoomInstance.getPan();
+    const bounds = genoMapSvg.getBoundingClientRect();
+    const x = (point.clientX - bounds.left - pan.x) / sizes.realZoom;
+    const y = (point.clientY - bounds.top - pan.y) / sizes.realZoom;
+
+    const context = document.createElement("canvas").getContext("2d");
+    context.lineWidth = 4;
+
+    const familyRuns = getFamilyRuns(e.target);
+    let familyId = null;
+
+    for (let i = 0; i < familyRuns.length && familyId === null; i++) {
+        if (familyRuns[i].id !== "-" && context.isPointInStroke(new Path2D(familyRuns[i].d), x, y)) {
+            familyId = familyRuns[i].id;
+        }
+    }
+
+    if (familyId === null) {
+        return;
+    }
+
+    const batches = genoMapSvg.querySelectorAll("path[data-families]");
+
+    for (let i = 0; i < batches.length; i++) {
+
+        const d = getFamilyRuns(batches[i])
+            .filter(function(familyRun) {
+                return familyRun.id === familyId;
+            })
+            .map(function(familyRun) {
+                return familyRun.d;
+            })
+            .join("");
+
+        if (d.length > 0) {
+            const overlay = document.createElementNS("http://www.w3.org/2000/svg", "path");
+            overlay.setAttribute("d", d);
+            overlay.setAttribute("class", batches[i].getAttribute("class") + " link-highlight");
+            overlay.setAttribute("data-overlay", "");
+            overlay.style.pointerEvents = "none";
+            batches[i].parentNode.insertBefore(overlay, batches[i].nextSibling);
+        }
+    }
+}
+
+/* splits the merged path data into runs of subpaths of the same family, every subpath starts with the M command */
+function getFamilyRuns(path) {
+
+    const subpaths = path.getAttribute("d").split(/(?=M)/);
+    const families = path.getAttribute("data-families").split(" ");
+    const familyRuns = [];
+    let offset = 0;
+
+    for (let i = 0; i + 1 < families.length; i += 2) {
+        const count = Number(families[i + 1]);
+        familyRuns.push({id: families[i], d: subpaths.slice(offset, offset + count).join("")});
+        offset += count;
+    }
+
+    return familyRuns;
+}
+
 function selectById(id) {
 
     genoMapSelectedIndividualId = id;
@@ -376,11 +708,16 @@ function selectById(id) {
     }
 
     /* get bounding box */
-    const boundingBoxElement = genoMapSvg.getElementById(id + '-bb');
-    const x = Number(boundingBoxElement.getAttribute("x"));
-    const y = Number(boundingBoxElement.getAttribute("y"));
-    const width = Number(boundingBoxElement.getAttribute("width"));
-    const height = Number(boundingBoxElement.getAttribute("height"));
+    const rect = getIndividualRect(id);
+
+    if (rect === null) {
+        return;
+    }
+
+    const x = rect[0];
+    const y = rect[1];
+    const width = rect[2];
+    const height = rect[3];
 
     /* create handles */
     const parent = genoMapSvg.getElementById(id);
@@ -425,21 +762,17 @@ function showDetail(e) {
     }
 }
 
+/* the position relative to the genomap SVG element, computed from the index to avoid a forced layout */
 function getCurrentPosition(id) {
 
-    const boundingBoxElement = genoMapSvg.getElementById(id + '-bb');
-    const boundingRect = boundingBoxElement.getBoundingClientRect();
-    let x = boundingRect.left + boundingRect.width / 2;
-    let y = boundingRect.top + boundingRect.height / 2;
-
-    const parentBoundingRect = genoMapSvg.getBoundingClientRect();
-    const parentX = parentBoundingRect.left;
-    const parentY = parentBoundingRect.top;
-
-    x -= parentX;
-    y -= parentY;
+    const rect = getIndividualRect(id);
+    const sizes = svgPanZoomInstance.getSizes();
+    const pan = svgPanZoomInstance.getPan();
 
-    return {x: x, y: y};
+    return {
+        x: (rect[0] + rect[2] / 2) * sizes.realZoom + pan.x,
+        y: (rect[1] + rect[3] / 2) * sizes.realZoom + pan.y
+    };
 }
 
 function getTargetPosition() {
@@ -452,6 +785,174 @@ function getTargetPosition() {
     };
 }
 
+/* calls the callback once the index of the current genomap is available and the individual's tile is loaded */
+function locateIndividual(id, callback) {
+    loadGenoMapIndex(genoMapId, function() {
+        loadIndividualTile(id, callback);
+    });
+}
+
+/* calls the callback once the spatial index of the given genomap is available */
+function loadGenoMapIndex(indexGenoMapId, callback) {
+
+    const index = genoMapIndexMap.get(indexGenoMapId);
+
+    if (typeof index === "undefined") {
+
+        genoMapIndexMap.set(indexGenoMapId, [callback]);
+
+        const script = document.createElement("script");
+        script.src = indexGenoMapId + "-index.js";
+        document.head.appendChild(script);
+
+    } else if (Array.isArray(index)) {
+        index.push(callback);
+
+    } else {
+        callback();
+    }
+}
+
+/* called from the genomap index scripts */
+function addGenoMapIndex(indexGenoMapId, data) {
+
+    data.m = new Map();
+
+    for (let i = 0; i < data.i.length; i++) {
+        data.m.set(data.i[i], i);
+    }
+
+    const callbacks = genoMapIndexMap.get(indexGenoMapId);
+    genoMapIndexMap.set(indexGenoMapId, data);
+
+    if (Array.isArray(callbacks)) {
+        callbacks.forEach(function(callback) {
+            callback();
+        });
+    }
+}
+
+function getGenoMapIndex() {
+
+    const index = genoMapIndexMap.get(genoMapId);
+
+    return (typeof index === "undefined" || Array.isArray(index)) ? null : index;
+}
+
+/* the active area of the individual as [x, y, width, height] in the genomap coordinates */
+function getIndividualRect(id) {
+
+    const index = getGenoMapIndex();
+    const ordinal = (index !== null) ? index.m.get(id) : undefined;
+
+    if (typeof ordinal === "undefined") {
+        return null;
+    }
+
+    return index.r.slice(4 * ordinal, 4 * ordinal + 4);
+}
+
+/* the topmost individual whose active area contains the point in the genomap coordinates */
+function findIndividualAt(x, y) {
+
+    const index = getGenoMapIndex();
+
+    if (index === null) {
+        return null;
+    }
+
+    const rows = index.g.length / index.n;
+    const column = Math.min(Math.max(Math.floor(x / index.s), 0), index.n - 1);
+    const row = Math.min(Math.max(Math.floor(y / index.s), 0), rows - 1);
+    const cell = index.g[row * index.n + column];
+    const rects = index.r;
+
+    for (let i = cell.length - 1; i >= 0; i--) {
+        const offset = 4 * cell[i];
+        if (x >= rects[offset] && x <= rects[offset] + rects[offset + 2]
+                && y >= rects[offset + 1] && y <= rects[offset + 1] + rects[offset + 3]) {
+            return index.i[cell[i]];
+        }
+    }
+
+    return null;
+}
+
+/* builds the id -> [genoMapId, first, middle, last, birth, death, mateIds, fatherId, motherId] map from the columnar data,
+   in the sharded mode the details (death, mates, parents) are null until the genomap shard is loaded */
+function loadIndividuals() {
+
+    if (iMap === null && typeof iData !== "undefined") {
+
+        const strings = iData.s;
+        const columns = iData.c;
+        const ids = columns[0];
+
+        iMap = new Map();
+        iIds = new Array(ids.length);
+
+        for (let i = 0; i < ids.length; i++) {
+            const info = new Array(9);
+            for (let c = 1; c <= 9; c++) {
+                info[c - 1] = (c < columns.length) ? strings[columns[c][i]] : null;
+            }
+            iIds[i] = strings[ids[i]];
+            iMap.set(iIds[i], info);
+        }
+    }
+
+    return iMap !== null;
+}
+
+/* calls the callback once details of individuals from the given genomap are available */
+function loadIndividualDetails(individualGenoMapId, callback) {
+
+    if (typeof iData.h === "undefined" || individualShardMap.get(individualGenoMapId) === true) {
+        callback();
+        return;
+    }
+
+    const callbacks = individualShardMap.get(individualGenoMapId);
+
+    if (typeof callbacks === "undefined") {
+
+        individualShardMap.set(individualGenoMapId, [callback]);
+
+        const script = document.createElement("script");
+        script.src = iData.h[individualGenoMapId];
+        document.head.appendChild(script);
+
+    } else {
+        callbacks.push(callback);
+    }
+}
+
+/* called from the genomap shard scripts */
+function addIndividualDetails(individualGenoMapId, data) {
+
+    loadIndividuals();
+
+    const strings = data.s;
+    const columns = data.c;
+    const ids = columns[0];
+
+    for (let i = 0; i < ids.length; i++) {
+        const info = iMap.get(strings[ids[i]]);
+        for (let c = 1; c < columns.length; c++) {
+            info[c + 4] = strings[columns[c][i]];
+        }
+    }
+
+    const callbacks = individualShardMap.get(individualGenoMapId);
+    individualShardMap.set(individualGenoMapId, true);
+
+    if (Array.isArray(callbacks)) {
+        callbacks.forEach(function(callback) {
+            callback();
+        });
+    }
+}
+
 function getFullName(individualInfo) {
 
     const nameArray = new Array();
@@ -501,28 +1002,154 @@ function showResults() {
 
 function addMoreSearchResultEntries(resultsElement) {
 
-    let row = 0;
-    let addedEntries = 0;
+    if (!loadIndividuals()) {
+        return;
+    }
+
+    if (rowsProcessed === 0 || searchResults === null) {
+        searchResults = findIndividuals(keywords);
+    }
 
-    for (let [key, value] of iMap) {
+    const end = Math.min(rowsProcessed + 26, searchResults.length);
 
-        row++;
-        if (row > rowsProcessed) {
+    for (let r = rowsProcessed; r < end; r++) {
+        const id = iIds[searchResults[r]];
+        createSearchResultEntry(resultsElement, id, iMap.get(id));
+    }
 
-            if (matches(value, keywords)) {
+    rowsProcessed = end;
+}
 
-                createSearchResultEntry(resultsElement, key, value);
+/* ordinals of individuals having every keyword as a prefix of some indexed token */
+function findIndividuals(keywords) {
 
-                addedEntries++;
+    let matched = null;
 
-                if (addedEntries > 25) {
-                    break;
-                }
+    for (let k = 0; k < keywords.length; k++) {
+
+        const keywordMatched = getKeywordOrdinals(keywords[k]);
+
+        matched = (matched === null) ? keywordMatched : intersectOrdinals(matched, keywordMatched);
+
+        if (matched.length === 0) {
+            break;
+        }
+    }
+
+    if (matched === null) {
+        return Array.from(iIds.keys());
+    }
+
+    return Array.from(matched);
+}
+
+/* ascending ordinals of the postings of tokens starting with the keyword */
+function getKeywordOrdinals(keyword) {
+
+    const tokens = iData.k;
+    const postings = iData.p;
+    const tokenIndexes = [];
+
+    /* tokens are sorted by UTF-16 code units just like the Java strings they come from */
+    let low = 0;
+    let high = tokens.length;
+
+    while (low < high) {
+        const middle = (low + high) >>> 1;
+        if (tokens[middle] < keyword) {
+            low = middle + 1;
+        } else {
+            high = middle;
+        }
+    }
+
+    for (let t = low; t < tokens.length && tokens[t].startsWith(keyword); t++) {
+        tokenIndexes.push(t);
+    }
+
+    /* keywords from the middle of words, e.g. a surname without its prefix, are found by scanning the tokens */
+    if (tokenIndexes.length === 0) {
+        for (let t = 0; t < tokens.length; t++) {
+            if (tokens[t].indexOf(keyword) !== -1) {
+                tokenIndexes.push(t);
             }
         }
     }
 
-    rowsProcessed = row;
+    if (tokenIndexes.length === 1) {
+        return decodePosting(postings[tokenIndexes[0]]);
+    }
+
+    let size = 0;
+
+    for (let i = 0; i < tokenIndexes.length; i++) {
+        size += postings[tokenIndexes[i]].length;
+    }
+
+    const ordinals = new Int32Array(size);
+    let offset = 0;
+
+    for (let i = 0; i < tokenIndexes.length; i++) {
+        const posting = postings[tokenIndexes[i]];
+        let ordinal = 0;
+        for (let p = 0; p < posting.length; p++) {
+            ordinal += posting[p];
+            ordinals[offset++] = ordinal;
+        }
+    }
+
+    ordinals.sort();
+
+    /* the same individual may have several matching tokens */
+    let count = 0;
+
+    for (let i = 0; i < ordinals.length; i++) {
+        if (count === 0 || ordinals[count - 1] !== ordinals[i]) {
+            ordinals[count++] = ordinals[i];
+        }
+    }
+
+    return ordinals.subarray(0, count);
+}
+
+function decodePosting(posting) {
+
+    const ordinals = new Int32Array(posting.length);
+    let ordinal = 0;
+
+    for (let p = 0; p < posting.length; p++) {
+        ordinal += posting[p];
+        ordinals[p] = ordinal;
+    }
+
+    return ordinals;
+}
+
+function intersectOrdinals(first, second) {
+
+    const ordinals = new Int32Array(Math.min(first.length, second.length));
+    let count = 0;
+    let i = 0;
+    let j = 0;
+
+    while (i < first.length && j < second.length) {
+        if (first[i] < second[j]) {
+            i++;
+        } else if (first[i] > second[j]) {
+            j++;
+        } else {
+            ordinals[count++] = first[i];
+            i++;
+            j++;
+        }
+    }
+
+    return ordinals.subarray(0, count);
+}
+
+/* keep in sync with IndividualsExporter.fold */
+function foldText(text) {
+    return text.normalize("NFD").replace(/[\u0300-\u036f]/g, "").toLowerCase();
 }
 
 function createSearchResultEntry(resultsElement, id, value) {
@@ -580,6 +1207,24 @@ function createSearchResultEntry(resultsElement, id, value) {
 
     const detail = document.createElement('div');
     detail.classList.add("detail");
+    loadIndividualDetails(value[0], function() {
+        fillDetail(detail, value);
+    });
+
+    info.appendChild(detail);
+
+    const bottomRow = document.createElement('div');
+    bottomRow.classList.add("bottom");
+    info.appendChild(bottomRow);
+
+    const genoMapName = document.createElement('div');
+    genoMapName.classList.add("genomapname");
+    genoMapName.textContent = genoMapMap.get(value[0]);
+    bottomRow.appendChild(genoMapName);
+}
+
+function fillDetail(detail, value) {
+
     if ((value[6] + value[7] + value[8]).length > 0) {
 
         const fatherId = value[7];
@@ -620,17 +1265,6 @@ function createSearchResultEntry(resultsElement, id, value) {
             detail.appendChild(mate);
         }
     }
-
-    info.appendChild(detail);
-
-    const bottomRow = document.createElement('div');
-    bottomRow.classList.add("bottom");
-    info.appendChild(bottomRow);
-
-    const genoMapName = document.createElement('div');
-    genoMapName.classList.add("genomapname");
-    genoMapName.textContent = genoMapMap.get(value[0]);
-    bottomRow.appendChild(genoMapName);
 }
 
 function hideResults() {
@@ -734,25 +1368,6 @@ function restoreSize(e) {
     svgPanZoomInstance.pan(pan);
 }
 
-function matches(value, keywords) {
-
-    let result = true;
-
-    for (let k = 0; k < keywords.length; k++) {
-        let found = false;
-        for (let i = 1; i < 5; i++) {
-            const normalizedValue = value[i].toLowerCase();
-            if (normalizedValue.indexOf(keywords[k]) !== -1) {
-                found = true;
-                break;
-            }
-        }
-        result &= found;
-    }
-
-    return result;
-}
-
 function isSame(array1, array2) {
     return (typeof array1 !== "undefined" && array1.length === array2.length) && array1.every(function(element, index) {
         return element === array2[index];
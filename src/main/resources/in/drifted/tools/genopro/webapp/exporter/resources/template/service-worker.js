@@ -1,56 +1,129 @@
+
 const relativeAppUrl = "${relativeAppUrl}";
-const currentCacheId = "${currentCacheId}";
+const cacheName = "genopro-webapp";
+const revisionHeader = "X-Revision";
+
+/* file paths relative to the app with revisions derived from their content */
+const precachedRevisions = "${precachedRevisions}";
+const lazyRevisions = "${lazyRevisions}";
+
+const appUrl = new URL(relativeAppUrl + "/", self.location).href;
+
+function getPath(url) {
+    const parsedUrl = new URL(url);
+    const href = parsedUrl.origin + parsedUrl.pathname;
+    return href.startsWith(appUrl) ? href.substring(appUrl.length) : null;
+}
+
+function getRevision(path) {
+    if (path === null) {
+        return undefined;
+    }
+    if (precachedRevisions.hasOwnProperty(path)) {
+        return precachedRevisions[path];
+    }
+    if (lazyRevisions.hasOwnProperty(path)) {
+        return lazyRevisions[path];
+    }
+    return undefined;
+}
+
+function isCurrent(response, revision) {
+    return response !== undefined && response.headers.get(revisionHeader) === revision;
+}
+
+/* the revision is stored along with the response, so only files whose content changed are downloaded again */
+function fetchRevision(cache, url, revision) {
+    return fetch(url, {
+        cache: "no-cache"
+    }).then(function(response) {
+        if (!response.ok) {
+            return response;
+        }
+        const headers = new Headers(response.headers);
+        headers.set(revisionHeader, revision);
+        return response.clone().blob().then(function(body) {
+            return cache.put(url, new Response(body, {
+                status: response.status,
+                statusText: response.statusText,
+                headers: headers
+            }));
+        }).then(function() {
+            return response;
+        });
+    });
+}
 
 self.addEventListener("install", function(event) {
     self.skipWaiting();
     event.waitUntil(
-        caches.open(currentCacheId).then(function(cache) {
-            return cache.addAll([
-                relativeAppUrl + "/",
-                relativeAppUrl + "/attribution.js",
-                relativeAppUrl + "/genomaps.js",
-                relativeAppUrl + "/index.html",
-                relativeAppUrl + "/individuals.js",
-                relativeAppUrl + "/manifest.json",
-                relativeAppUrl + "/style.css",
-                relativeAppUrl + "/res/hammer.min.js",
-                relativeAppUrl + "/res/OpenSans-Regular-webfont.woff",
-                relativeAppUrl + "/res/svg-pan-zoom.min.js",
-                relativeAppUrl + "/favicon/android-chrome-192x192.png",
-                relativeAppUrl + "/favicon/android-chrome-512x512.png",
-                relativeAppUrl + "/favicon/apple-touch-icon.png",
-                relativeAppUrl + "/favicon/favicon.ico",
-                relativeAppUrl + "/favicon/favicon-16x16.png",
-                relativeAppUrl + "/favicon/favicon-32x32.png",
-                "${genoMapPathList}"
-            ]);
+        caches.open(cacheName).then(function(cache) {
+            return Promise.all(Object.keys(precachedRevisions).map(function(path) {
+                const url = appUrl + path;
+                const revision = precachedRevisions[path];
+                return cache.match(url).then(function(response) {
+                    if (!isCurrent(response, revision)) {
+                        return fetchRevision(cache, url, revision).then(function(response) {
+                            if (!response.ok) {
+                                throw new Error("Precaching " + url + " failed: " + response.status);
+                            }
+                        });
+                    }
+                });
+            }));
         })
     );
 });
 
-self.addEventListener('activate', function(event) {
-    clients.claim();
+self.addEventListener("activate", function(event) {
     event.waitUntil(
         caches.keys().then(function(keyList) {
             return Promise.all(keyList.map(function(key) {
-                if (currentCacheId.indexOf(key) === -1) {
+                if (key !== cacheName) {
                     return caches.delete(key);
                 }
             }));
+        }).then(function() {
+            return caches.open(cacheName);
+        }).then(function(cache) {
+            return cache.keys().then(function(requestList) {
+                return Promise.all(requestList.map(function(request) {
+                    if (getRevision(getPath(request.url)) === undefined) {
+                        return cache.delete(request);
+                    }
+                }));
+            });
+        }).then(function() {
+            return clients.claim();
         })
     );
 });
 
 self.addEventListener("fetch", function(event) {
+
+    const path = getPath(event.request.url);
+    const revision = getRevision(path);
+
+    if (event.request.method !== "GET" || revision === undefined) {
+        return;
+    }
+
+    const url = appUrl + path;
+
     event.respondWith(
-        caches.match(event.request, {
-            ignoreSearch: true
-        }).then(function(response) {
-            if (response) {
-                return response;
-            } else {
-                return fetch(event.request);
-            }
+        caches.open(cacheName).then(function(cache) {
+            return cache.match(url).then(function(response) {
+                if (isCurrent(response, revision)) {
+                    return response;
+                }
+                const update = fetchRevision(cache, url, revision);
+                if (response !== undefined) {
+                    /* stale while revalidate, the outdated file is served while the current one is downloaded */
+                    event.waitUntil(update.catch(function() {}));
+                    return response;
+                }
+                return update;
+            });
         })
     );
 });
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class ByteSvgWriterTest {
+
+    @Test
+    void attributeValuesAreEscaped() throws IOException {
+        assertEquals("<text class=\"a&amp;b &lt;c&gt; &quot;d&quot; 'e'\"/>",
+                write(writer -> writer.writeAttribute("class", "a&b <c> \"d\" 'e'")));
+    }
+
+    @Test
+    void charactersKeepQuotes() throws IOException {
+        assertEquals("<text>\"a\" &lt;&amp;&gt;</text>", write(writer -> writer.writeCharacters("\"a\" <&>")));
+    }
+
+    @Test
+    void charactersAreEncodedAsUtf8() throws IOException {
+        assertEquals("<text>Tošovský € 😀</text>",
+                write(writer -> writer.writeCharacters("Tošovský € 😀")));
+    }
+
+    @Test
+    void unpairedSurrogateIsReplaced() throws IOException {
+        assertEquals("<text>a?b</text>", write(writer -> writer.writeCharacters("a\uD83Db")));
+    }
+
+    @Test
+    void numbersAreRoundedToTwoDecimalPlaces() throws IOException {
+        assertEquals("<text x=\"1\" y=\"1.5\" width=\"0.13\" height=\"-2.01\" rx=\"0\" ry=\"-7\"/>", write(writer -> {
+            writer.writeAttribute("x", 1.0);
+            writer.writeAttribute("y", 1.499999);
+            writer.writeAttribute("width", 0.125);
+            writer.writeAttribute("height", -2.006);
+            writer.writeAttribute("rx", 0.004);
+            writer.writeAttribute("ry", -7);
+        }));
+    }
+
+    @Test
+    void appendNumberMatchesWrittenNumbers() throws IOException {
+
+        double[] values = {0, 0.5, -0.5, 12.345, -12.345, 1e-9, 123456789.987, Double.NaN};
+
+        for (double value : values) {
+
+            StringBuilder expected = new StringBuilder("<text x=\"");
+            ByteSvgWriter.appendNumber(expected, value);
+            expected.append("\"/>");
+
+            assertEquals(expected.toString(), write(writer -> writer.writeAttribute("x", value)));
+        }
+    }
+
+    @Test
+    void outputLongerThanBufferIsComplete() throws IOException {
+
+        String text = "<&>á€😀".repeat(1000);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream, 64);
+        writer.writeStartElement("text");
+        writer.writeCharacters(text);
+        writer.writeEndDocument();
+        writer.flush();
+
+        assertEquals("<text>" + text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;") + "</text>",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void nestedElementsAreClosed() throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream);
+        writer.writeStartDocument();
+        writer.writeStartElement("svg");
+        writer.writeStartElement("g");
+        writer.writeStartElement("path");
+        writer.writeEndDocument();
+        writer.flush();
+
+        assertEquals("<?xml version=\"1.0\" ?><svg><g><path/></g></svg>",
+                outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals(3, writer.getElementCount());
+    }
+
+    @Test
+    void attributeOutsideOfStartTagIsRejected() {
+        assertThrows(IllegalStateException.class, () -> write(writer -> {
+            writer.writeCharacters("text");
+            writer.writeAttribute("x", 1);
+        }));
+    }
+
+    private static String write(WriterAction action) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteSvgWriter writer = new ByteSvgWriter(outputStream);
+
+        writer.writeStartElement("text");
+        action.write(writer);
+        writer.writeEndElement();
+        writer.flush();
+
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface WriterAction {
+
+        void write(SvgWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The tests use a minimal font built in memory: glyphs .notdef, A, V, a and a supplementary character, cmap format 4,
+ * hmtx with a monospaced tail and a legacy kern table.
+ */
+class FontFileTest {
+
+    private static final int UNITS_PER_EM = 1000;
+
+    private static final int GLYPH_A = 1;
+    private static final int GLYPH_V = 2;
+    private static final int GLYPH_SMALL_A = 3;
+
+    private static final int[] ADVANCE_WIDTHS = {500, 650, 620};
+
+    @Test
+    void characterMapIsDecoded() throws IOException {
+
+        FontFile fontFile = load(getSfnt(true));
+
+        assertEquals(GLYPH_A, fontFile.getGlyphIndex('A'));
+        assertEquals(GLYPH_V, fontFile.getGlyphIndex('V'));
+        assertEquals(GLYPH_SMALL_A, fontFile.getGlyphIndex('a'));
+        assertEquals(0, fontFile.getGlyphIndex('b'));
+        assertEquals(0, fontFile.getGlyphIndex(0x1F600));
+    }
+
+    @Test
+    void advanceWidthsAreDecoded() throws IOException {
+
+        FontFile fontFile = load(getSfnt(true));
+
+        assertEquals(500, fontFile.getAdvanceWidth(0));
+        assertEquals(650, fontFile.getAdvanceWidth(GLYPH_A));
+        assertEquals(620, fontFile.getAdvanceWidth(GLYPH_V));
+
+        // glyphs after the last horizontal metric repeat its advance width
+        assertEquals(620, fontFile.getAdvanceWidth(GLYPH_SMALL_A));
+        assertEquals(620, fontFile.getBmpAdvanceWidths()['a']);
+        assertEquals(GLYPH_SMALL_A, fontFile.getBmpGlyphIndices()['a']);
+    }
+
+    @Test
+    void kerningPairsAreDecoded() throws IOException {
+
+        FontFile fontFile = load(getSfnt(true));
+
+        assertTrue(fontFile.hasKerning());
+        assertEquals(-80, fontFile.getKerning(GLYPH_A, GLYPH_V));
+        assertEquals(-60, fontFile.getKerning(GLYPH_V, GLYPH_A));
+        assertEquals(15, fontFile.getKerning(GLYPH_V, GLYPH_SMALL_A));
+        assertEquals(0, fontFile.getKerning(GLYPH_SMALL_A, GLYPH_V));
+        assertEquals(0, fontFile.getKerning(GLYPH_A, GLYPH_A));
+    }
+
+    @Test
+    void textMetricsApplyKerning() throws IOException {
+
+        TextMetrics textMetrics = load(getSfnt(true)).getTextMetrics(UNITS_PER_EM);
+
+        assertEquals(800, textMetrics.getAscent());
+        assertEquals(200, textMetrics.getDescent());
+        assertEquals(650 + 620 - 80, textMetrics.stringWidth("AV"));
+        assertEquals(620 + 650 - 60 + 620 + 500, textMetrics.stringWidth("VAab"));
+
+        // characters without a glyph are measured as .notdef
+        assertEquals(650 + 500, textMetrics.stringWidth("A😀"));
+
+        assertEquals(65, load(getSfnt(true)).getTextMetrics(100).stringWidth("A"));
+    }
+
+    @Test
+    void fontWithoutKerningHasNoAdjustments() throws IOException {
+
+        FontFile fontFile = load(getSfnt(false));
+
+        assertFalse(fontFile.hasKerning());
+        assertEquals(650 + 620, fontFile.getTextMetrics(UNITS_PER_EM).stringWidth("AV"));
+    }
+
+    @Test
+    void woffMatchesSfnt() throws IOException {
+
+        FontFile sfntFontFile = load(getSfnt(true));
+        FontFile woffFontFile = load(getWoff(getTables(true)));
+
+        for (int c = 0; c < 0x80; c++) {
+            assertEquals(sfntFontFile.getGlyphIndex(c), woffFontFile.getGlyphIndex(c));
+        }
+
+        assertEquals(-80, woffFontFile.getKerning(GLYPH_A, GLYPH_V));
+        assertEquals(650 + 620 - 80, woffFontFile.getTextMetrics(UNITS_PER_EM).stringWidth("AV"));
+    }
+
+    @Test
+    void idDependsOnContent() throws IOException {
+        assertEquals(load(getSfnt(true)).getId(), load(getSfnt(true)).getId());
+        assertFalse(load(getSfnt(true)).getId().equals(load(getSfnt(false)).getId()));
+    }
+
+    @Test
+    void unsupportedFontsAreRejected() {
+
+        byte[] woff2 = {'w', 'O', 'F', '2', 0, 0, 0, 0};
+        byte[] unknown = {1, 2, 3, 4, 5, 6, 7, 8};
+        byte[] truncated = Arrays.copyOf(getSfnt(true), 40);
+
+        assertEquals("WOFF2 fonts are not supported, use the TTF, OTF or WOFF variant",
+                assertThrows(IOException.class, () -> load(woff2)).getMessage());
+        assertEquals("Unsupported font format", assertThrows(IOException.class, () -> load(unknown)).getMessage());
+        assertThrows(IOException.class, () -> load(truncated));
+    }
+
+    private static FontFile load(byte[] data) throws IOException {
+        return FontFile.load(new ByteArrayInputStream(data));
+    }
+
+    private static Map<String, byte[]> getTables(boolean kerning) {
+
+        Map<String, byte[]> tableMap = new LinkedHashMap<>();
+
+        ByteBuffer head = ByteBuffer.allocate(54);
+        head.putInt(0, 0x00010000);
+        head.putShort(18, (short) UNITS_PER_EM);
+        tableMap.put("head", head.array());
+
+        ByteBuffer hhea = ByteBuffer.allocate(36);
+        hhea.putInt(0, 0x00010000);
+        hhea.putShort(4, (short) 800);
+        hhea.putShort(6, (short) -200);
+        hhea.putShort(34, (short) ADVANCE_WIDTHS.length);
+        tableMap.put("hhea", hhea.array());
+
+        ByteBuffer maxp = ByteBuffer.allocate(6);
+        maxp.putInt(0, 0x00005000);
+        maxp.putShort(4, (short) 4);
+        tableMap.put("maxp", maxp.array());
+
+        ByteBuffer hmtx = ByteBuffer.allocate(ADVANCE_WIDTHS.length * 4 + 2);
+        for (int advanceWidth : ADVANCE_WIDTHS) {
+            hmtx.putShort((short) advanceWidth).putShort((short) 0);
+        }
+        tableMap.put("hmtx", hmtx.array());
+
+        tableMap.put("cmap", getCharacterMap(new int[]{'A', 'V', 'a', 0xFFFF},
+                new int[]{GLYPH_A, GLYPH_V, GLYPH_SMALL_A, 0}));
+
+        if (kerning) {
+            // the second subtable repeats A V with another value, the first occurrence wins
+            ByteBuffer kern = ByteBuffer.allocate(4 + 2 * 14 + 4 * 6);
+            kern.putShort((short) 0).putShort((short) 2);
+            putKerningSubtable(kern, new int[][]{{GLYPH_V, GLYPH_SMALL_A, 15}, {GLYPH_A, GLYPH_V, -80},
+                {GLYPH_V, GLYPH_A, -60}});
+            putKerningSubtable(kern, new int[][]{{GLYPH_A, GLYPH_V, -10}});
+            tableMap.put("kern", kern.array());
+        }
+
+        return tableMap;
+    }
+
+    // one segment per character, the last one being the mandatory 0xFFFF end segment
+    private static byte[] getCharacterMap(int[] codes, int[] glyphIndices) {
+
+        int segCount = codes.length;
+        int subtableLength = 16 + 8 * segCount;
+
+        ByteBuffer cmap = ByteBuffer.allocate(12 + subtableLength);
+        cmap.putShort((short) 0).putShort((short) 1);
+        cmap.putShort((short) 3).putShort((short) 1).putInt(12);
+
+        cmap.putShort((short) 4).putShort((short) subtableLength).putShort((short) 0);
+        cmap.putShort((short) (2 * segCount)).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+
+        for (int code : codes) {
+            cmap.putShort((short) code);
+        }
+
+        cmap.putShort((short) 0);
+
+        for (int code : codes) {
+            cmap.putShort((short) code);
+        }
+
+        for (int i = 0; i < segCount; i++) {
+            cmap.putShort((short) (glyphIndices[i] - codes[i]));
+        }
+
+        for (int i = 0; i < segCount; i++) {
+            cmap.putShort((short) 0);
+        }
+
+        return cmap.array();
+    }
+
+    private static void putKerningSubtable(ByteBuffer kern, int[][] pairs) {
+
+        kern.putShort((short) 0).putShort((short) (14 + pairs.length * 6)).putShort((short) 0x0001);
+        kern.putShort((short) pairs.length).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+
+        for (int[] pair : pairs) {
+            kern.putShort((short) pair[0]).putShort((short) pair[1]).putShort((short) pair[2]);
+        }
+    }
+
+    private static byte[] getSfnt(boolean kerning) {
+
+        Map<String, byte[]> tableMap = getTables(kerning);
+
+        int offset = 12 + 16 * tableMap.size();
+        int length = offset + tableMap.values().stream().mapToInt(table -> table.length).sum();
+
+        ByteBuffer sfnt = ByteBuffer.allocate(length);
+        sfnt.putInt(0x00010000).putShort((short) tableMap.size()).putShort((short) 0).putShort((short) 0)
+                .putShort((short) 0);
+
+        for (Map.Entry<String, byte[]> entry : tableMap.entrySet()) {
+            sfnt.put(entry.getKey().getBytes(StandardCharsets.US_ASCII)).putInt(0).putInt(offset)
+                    .putInt(entry.getValue().length);
+            sfnt.put(offset, entry.getValue());
+            offset += entry.getValue().length;
+        }
+
+        return sfnt.array();
+    }
+
+    // tables are stored compressed when it saves space, like in real WOFF files
+    private static byte[] getWoff(Map<String, byte[]> tableMap) {
+
+        Map<String, byte[]> storedTableMap = new LinkedHashMap<>();
+
+        for (Map.Entry<String, byte[]> entry : tableMap.entrySet()) {
+
+            Deflater deflater = new Deflater();
+            deflater.setInput(entry.getValue());
+            deflater.finish();
+
+            byte[] compressed = new byte[entry.getValue().length + 64];
+            int compressedLength = deflater.deflate(compressed);
+            deflater.end();
+
+            storedTableMap.put(entry.getKey(), (compressedLength < entry.getValue().length)
+                    ? Arrays.copyOf(compressed, compressedLength) : entry.getValue());
+        }
+
+        int offset = 44 + 20 * tableMap.size();
+        int length = offset + storedTableMap.values().stream().mapToInt(table -> table.length).sum();
+
+        ByteBuffer woff = ByteBuffer.allocate(length);
+        woff.putInt(0x774F4646).putInt(0x00010000).putInt(length).putShort((short) tableMap.size());
+        woff.position(44);
+
+        for (Map.Entry<String, byte[]> entry : storedTableMap.entrySet()) {
+            byte[] stored = entry.getValue();
+            woff.put(entry.getKey().getBytes(StandardCharsets.US_ASCII)).putInt(offset).putInt(stored.length)
+                    .putInt(tableMap.get(entry.getKey()).length).putInt(0);
+            woff.put(offset, stored);
+            offset += stored.length;
+        }
+
+        return woff.array();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+class JsonUtilTest {
+
+    @Test
+    void appendStringEscapesQuotesAndBackslashes() {
+        assertEquals("\"say \\\"hi\\\" to C:\\\\temp\"", appendString("say \"hi\" to C:\\temp"));
+    }
+
+    @Test
+    void appendStringEscapesControlCharacters() {
+        assertEquals("\"a\\nb\\rc\\td\\u0001e\\u001f\"", appendString("a\nb\rc\td\u0001e\u001f"));
+    }
+
+    @Test
+    void appendStringEscapesLineSeparators() {
+        assertEquals("\"\\u2028\\u2029\"", appendString("\u2028\u2029"));
+    }
+
+    @Test
+    void appendStringKeepsOtherCharacters() {
+        assertEquals("\"Tošovský </script> 'x' \uD83D\uDE00\"",
+                appendString("Tošovský </script> 'x' \uD83D\uDE00"));
+    }
+
+    @Test
+    void writeScriptStringLiteralEscapesQuotesAndScriptEnd() throws IOException {
+
+        StringWriter writer = new StringWriter();
+        JsonUtil.writeScriptStringLiteral(writer, "{\"name\":\"O'Brien\\n</script>\"}\n");
+
+        assertEquals("'{\"name\":\"O\\'Brien\\\\n\\x3c/script>\"}\\u000a'", writer.toString());
+    }
+
+    private static String appendString(String value) {
+
+        StringBuilder json = new StringBuilder();
+        JsonUtil.appendString(json, value);
+
+        return json.toString();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+
+class QuadTreeTest {
+
+    private static final Rectangle2D BOUNDS = new Rectangle2D.Double(0, 0, 100, 100);
+
+    @Test
+    void emptyTreeHasNoLeaves() {
+        assertEquals(List.of(), new QuadTree<String>(BOUNDS, 4, 8).getLeafItemLists());
+    }
+
+    @Test
+    void itemsWithinCapacityStayInOneLeaf() {
+
+        QuadTree<String> quadTree = new QuadTree<>(BOUNDS, 3, 8);
+        quadTree.insert(10, 10, "a");
+        quadTree.insert(90, 90, "b");
+        quadTree.insert(10, 90, "c");
+
+        assertEquals(List.of(List.of("a", "b", "c")), quadTree.getLeafItemLists());
+    }
+
+    @Test
+    void leavesFollowZOrder() {
+
+        QuadTree<String> quadTree = new QuadTree<>(BOUNDS, 1, 8);
+        quadTree.insert(75, 75, "bottomRight");
+        quadTree.insert(25, 75, "bottomLeft");
+        quadTree.insert(75, 25, "topRight");
+        quadTree.insert(25, 25, "topLeft");
+
+        assertEquals(List.of(List.of("topLeft"), List.of("topRight"), List.of("bottomLeft"), List.of("bottomRight")),
+                quadTree.getLeafItemLists());
+    }
+
+    @Test
+    void crowdedAreaIsSplitFurther() {
+
+        QuadTree<Integer> quadTree = new QuadTree<>(BOUNDS, 2, 8);
+
+        // four items close to the origin and a single one in each of the other quadrants
+        quadTree.insert(1, 1, 0);
+        quadTree.insert(2, 2, 1);
+        quadTree.insert(30, 30, 2);
+        quadTree.insert(40, 40, 3);
+        quadTree.insert(75, 25, 4);
+        quadTree.insert(25, 75, 5);
+        quadTree.insert(75, 75, 6);
+
+        List<List<Integer>> leafItemLists = quadTree.getLeafItemLists();
+
+        assertEquals(List.of(List.of(0, 1), List.of(2, 3), List.of(4), List.of(5), List.of(6)), leafItemLists);
+    }
+
+    @Test
+    void maxDepthLimitsSplitting() {
+
+        QuadTree<Integer> quadTree = new QuadTree<>(BOUNDS, 1, 2);
+
+        for (int i = 0; i < 10; i++) {
+            quadTree.insert(1, 1, i);
+        }
+
+        assertEquals(List.of(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)), quadTree.getLeafItemLists());
+    }
+
+    @Test
+    void pointsOnCenterAndOutsideOfBoundsAreKept() {
+
+        QuadTree<Integer> quadTree = new QuadTree<>(BOUNDS, 1, 8);
+        List<Integer> itemList = new ArrayList<>();
+
+        double[][] points = {{50, 50}, {-10, -10}, {150, -10}, {-10, 150}, {150, 150}, {0, 100}};
+
+        for (int i = 0; i < points.length; i++) {
+            quadTree.insert(points[i][0], points[i][1], i);
+            itemList.add(i);
+        }
+
+        List<Integer> leafItemList = new ArrayList<>();
+
+        for (List<Integer> leafItems : quadTree.getLeafItemLists()) {
+            assertFalse(leafItems.isEmpty());
+            leafItemList.addAll(leafItems);
+        }
+
+        leafItemList.sort(null);
+
+        assertEquals(itemList, leafItemList);
+    }
+}
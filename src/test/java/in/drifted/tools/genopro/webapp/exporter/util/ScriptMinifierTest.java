@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+class ScriptMinifierTest {
+
+    @Test
+    void whitespaceIsKeptOnlyBetweenIdentifiers() {
+        assertEquals("const a=b+c;return a;", ScriptMinifier.minify("const  a = b +\n    c;\n\treturn a;"));
+    }
+
+    @Test
+    void plusAndMinusSequencesStaySeparated() {
+        assertEquals("a=b+ +c-(-d)- -e;", ScriptMinifier.minify("a = b + +c - (-d) - -e;"));
+    }
+
+    @Test
+    void commentsAreRemoved() {
+        assertEquals("let a=1;let b=2;", ScriptMinifier.minify("let a = 1; // one\n/* two\n */ let b = 2;"));
+    }
+
+    @Test
+    void leadingLicenseCommentIsKept() {
+        assertEquals("/* license */\nlet a;", ScriptMinifier.minify("\n/* license */\n\nlet a; /* other */"));
+    }
+
+    @Test
+    void stringLiteralsAreCopiedUnchanged() {
+        assertEquals("s=\"a  // b\"+'c /* d */ \\' e'+`f  ${g}`;",
+                ScriptMinifier.minify("s = \"a  // b\" + 'c /* d */ \\' e' + `f  ${g}`;"));
+    }
+
+    @Test
+    void regexLiteralsAreCopiedUnchanged() {
+        assertEquals("t=s.replace(/[\\u0300-\\u036f /]/g,\"\").split(/\\s+/);",
+                ScriptMinifier.minify("t = s.replace(/[\\u0300-\\u036f /]/g, \"\").split(/\\s+/);"));
+    }
+
+    @Test
+    void regexLiteralsAfterKeywordsAreRecognized() {
+        assertEquals("return/a  b/.test(c);", ScriptMinifier.minify("return /a  b/.test(c);"));
+    }
+
+    @Test
+    void divisionIsNotTakenForRegex() {
+        assertEquals("a=b/2/c;d=(e)/f;", ScriptMinifier.minify("a = b / 2 / c; d = (e) / f;"));
+    }
+}
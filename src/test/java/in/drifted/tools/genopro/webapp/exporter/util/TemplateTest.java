@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Jan Tošovský <jan.tosovsky.cz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package in.drifted.tools.genopro.webapp.exporter.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+class TemplateTest {
+
+    @Test
+    void placeholdersAreReplaced() {
+        assertEquals("<title>Family</title><p>Family tree</p>",
+                Template.compile("<title>${title}</title><p>${title} ${kind}</p>").render(
+                        Map.of("title", "Family", "kind", "tree")));
+    }
+
+    @Test
+    void unknownPlaceholdersAreKept() {
+        assertEquals("a ${unknown} b", Template.compile("a ${unknown} b").render(Map.of()));
+    }
+
+    @Test
+    void invalidPlaceholdersAreCopied() {
+        assertEquals("`${a + b}` ${} ${unclosed x",
+                Template.compile("`${a + b}` ${} ${unclosed ${x}").render(Map.of("x", "x", "unclosed", "u")));
+    }
+
+    @Test
+    void unquotedPlaceholdersLoseQuotes() {
+
+        Template template = Template.compile("const dynamic = \"${dynamic}\"; const name = \"${name}\";",
+                Set.of("dynamic"));
+
+        assertEquals("const dynamic = true; const name = \"Tree\";",
+                template.render(Map.of("dynamic", "true", "name", "Tree")));
+    }
+
+    @Test
+    void handlerWritesPlaceholderValues() throws IOException {
+
+        StringWriter writer = new StringWriter();
+        Template.compile("${a}-${b}-").render(writer,
+                (name, placeholderWriter) -> placeholderWriter.write(name.toUpperCase()));
+
+        assertEquals("A-B-", writer.toString());
+    }
+}